@@ -0,0 +1,329 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dockstore.common.VersionTypeValidation;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Validates many workflow versions in parallel with {@link
+ * GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl#validateWorkflowSet}, e.g. to re-validate a corpus
+ * after a linter upgrade.
+ *
+ * <p>At most {@code parallelism} versions are validated at a time. Each version gets its own
+ * timeout, counted from when its validation starts, after which it is reported as invalid and its
+ * worker is interrupted and handed off: the version gives up its place and the next one starts on a
+ * fresh thread, so a pathological workflow can't hold up the results of the others. Threads are
+ * bounded: once {@code maxAbandoned} timed out workers are still running, queued versions are
+ * reported as invalid without being validated until some of those finish. Parse errors are reported
+ * as invalid versions as well rather than failing the batch.
+ *
+ * <p>With an error budget, linting of a version stops once that many errors were found, when a
+ * rejection with its first few reasons is all that's needed.
+ *
+ * <p>Native workflow linting stops at the next step once interrupted, a handed off worker busy
+ * elsewhere (e.g. parsing) runs on until that finishes, counted against {@code maxAbandoned}.
+ */
+public class BulkWorkflowValidator implements AutoCloseable {
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+  public static final int DEFAULT_MAX_ABANDONED = 16;
+
+  // states of a version
+  private static final int RUNNING = 0;
+  private static final int ABANDONED = 1;
+  private static final int DONE = 2;
+
+  private final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin;
+  private final Duration timeout;
+  private final int errorBudget;
+  private final int maxAbandoned;
+  // threads are only reused once their version is done, timed out ones aren't waited for; at most
+  // parallelism versions and maxAbandoned timed out ones run at a time
+  private final ThreadPoolExecutor executor;
+  private final Semaphore slots;
+  private final AtomicInteger abandoned = new AtomicInteger();
+  private final Queue<Job> queued = new ConcurrentLinkedQueue<>();
+  private final ScheduledExecutorService timer;
+  private final Set<Job> pending = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  /** One workflow version to validate, its initial descriptor path and contents. */
+  public static class WorkflowVersion {
+    private final String initialPath;
+    private final String contents;
+
+    public WorkflowVersion(final String initialPath, final String contents) {
+      this.initialPath = initialPath;
+      this.contents = contents;
+    }
+
+    public String getInitialPath() {
+      return initialPath;
+    }
+
+    public String getContents() {
+      return contents;
+    }
+  }
+
+  public BulkWorkflowValidator(
+      final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin, final int parallelism) {
+    this(plugin, parallelism, DEFAULT_TIMEOUT);
+  }
+
+  public BulkWorkflowValidator(
+      final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin,
+      final int parallelism,
+      final Duration timeout) {
+    this(plugin, parallelism, timeout, 0);
+  }
+
+  public BulkWorkflowValidator(
+      final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin,
+      final int parallelism,
+      final Duration timeout,
+      final int errorBudget) {
+    this(plugin, parallelism, timeout, errorBudget, DEFAULT_MAX_ABANDONED);
+  }
+
+  public BulkWorkflowValidator(
+      final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin,
+      final int parallelism,
+      final Duration timeout,
+      final int errorBudget,
+      final int maxAbandoned) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be at least 1");
+    }
+    if (errorBudget < 0) {
+      throw new IllegalArgumentException("errorBudget must not be negative");
+    }
+    if (maxAbandoned < 1) {
+      throw new IllegalArgumentException("maxAbandoned must be at least 1");
+    }
+    this.plugin = plugin;
+    this.timeout = timeout;
+    this.errorBudget = errorBudget;
+    this.maxAbandoned = maxAbandoned;
+    this.slots = new Semaphore(parallelism);
+    this.executor =
+        new ThreadPoolExecutor(
+            parallelism + maxAbandoned,
+            parallelism + maxAbandoned,
+            1,
+            TimeUnit.MINUTES,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("galaxy-workflow-validator-%d")
+                .setDaemon(true)
+                .build());
+    executor.allowCoreThreadTimeOut(true);
+    this.timer =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("galaxy-workflow-validator-timer")
+                .setDaemon(true)
+                .build());
+  }
+
+  /**
+   * Queue the versions for validation.
+   *
+   * @return one future per version, in the order of {@code versions}, each completed as soon as
+   *     that version is done
+   * @throws IllegalStateException if the validator was closed
+   */
+  public List<CompletableFuture<VersionTypeValidation>> submit(
+      final List<WorkflowVersion> versions) {
+    if (closed) {
+      throw new IllegalStateException("validator closed");
+    }
+    final List<CompletableFuture<VersionTypeValidation>> results = new ArrayList<>(versions.size());
+    for (final WorkflowVersion version : versions) {
+      results.add(submit(version));
+    }
+    return results;
+  }
+
+  /**
+   * Validate the versions and hand each result to {@code onResult} on the calling thread in the
+   * order they complete. Returns once every version has been reported.
+   */
+  public void validate(
+      final List<WorkflowVersion> versions,
+      final BiConsumer<WorkflowVersion, VersionTypeValidation> onResult)
+      throws InterruptedException {
+    final BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+    final List<CompletableFuture<VersionTypeValidation>> results = submit(versions);
+    for (int i = 0; i < results.size(); i++) {
+      final int index = i;
+      results.get(i).whenComplete((validation, e) -> completed.add(index));
+    }
+    for (int i = 0; i < results.size(); i++) {
+      final int index = completed.take();
+      onResult.accept(versions.get(index), results.get(index).join());
+    }
+  }
+
+  private final class Job {
+    private final WorkflowVersion version;
+    private final CompletableFuture<VersionTypeValidation> result = new CompletableFuture<>();
+    private final FutureTask<Void> task = new FutureTask<>(() -> run(this), null);
+    private final AtomicBoolean slot = new AtomicBoolean(true);
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+    private Job(final WorkflowVersion version) {
+      this.version = version;
+    }
+  }
+
+  private CompletableFuture<VersionTypeValidation> submit(final WorkflowVersion version) {
+    final Job job = new Job(version);
+    pending.add(job);
+    job.result.whenComplete((validation, e) -> pending.remove(job));
+    queued.add(job);
+    if (closed) {
+      // closed while submitting
+      job.result.complete(closedResult(version));
+    }
+    dispatch();
+    return job.result;
+  }
+
+  // Start queued versions while fewer than parallelism hold a slot, or turn them down while too
+  // many timed out workers are still running.
+  private void dispatch() {
+    while (!queued.isEmpty()) {
+      if (abandoned.get() >= maxAbandoned) {
+        Job job;
+        while ((job = queued.poll()) != null) {
+          job.result.complete(
+              invalid(
+                  job.version,
+                  "validation not started, "
+                      + maxAbandoned
+                      + " timed out validations are still running"));
+        }
+        return;
+      }
+      if (!slots.tryAcquire()) {
+        return;
+      }
+      final Job next = queued.poll();
+      if (next == null) {
+        slots.release();
+      } else {
+        try {
+          executor.execute(next.task);
+        } catch (RejectedExecutionException e) {
+          next.result.complete(closedResult(next.version));
+          next.slot.set(false);
+          slots.release();
+        }
+      }
+    }
+  }
+
+  // Give up the slot of a version, once, when it's done or timed out.
+  private void release(final AtomicBoolean slot) {
+    if (slot.getAndSet(false)) {
+      slots.release();
+      dispatch();
+    }
+  }
+
+  private void run(final Job job) {
+    final WorkflowVersion version = job.version;
+    final CompletableFuture<VersionTypeValidation> result = job.result;
+    try {
+      if (result.isDone()) {
+        return;
+      }
+      final ScheduledFuture<?> timeoutCheck;
+      try {
+        timeoutCheck =
+            timer.schedule(() -> timeOut(job), timeout.toMillis(), TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        result.complete(closedResult(version));
+        return;
+      }
+      try {
+        result.complete(
+            errorBudget > 0
+                ? plugin.validateWorkflowSet(
+                    version.getInitialPath(), version.getContents(), errorBudget)
+                : plugin.validateWorkflowSet(
+                    version.getInitialPath(), version.getContents(), Map.of()));
+      } catch (RuntimeException | StackOverflowError e) {
+        GalaxyWorkflowPlugin.LOG.info(
+            "Galaxy Workflow file " + version.getInitialPath() + " failed to validate " + e);
+        result.complete(invalid(version, "Galaxy Workflow file is malformed " + e));
+      } finally {
+        timeoutCheck.cancel(false);
+      }
+    } finally {
+      if (job.state.getAndSet(DONE) == ABANDONED) {
+        abandoned.decrementAndGet();
+        dispatch();
+      }
+      release(job.slot);
+    }
+  }
+
+  private void timeOut(final Job job) {
+    if (!job.result.complete(invalid(job.version, "validation timed out after " + timeout))) {
+      return;
+    }
+    // counted before the worker can see it abandoned, it may finish in between
+    abandoned.incrementAndGet();
+    if (!job.state.compareAndSet(RUNNING, ABANDONED)) {
+      abandoned.decrementAndGet();
+    }
+    job.task.cancel(true);
+    release(job.slot);
+  }
+
+  private static VersionTypeValidation closedResult(final WorkflowVersion version) {
+    return invalid(version, "validator closed");
+  }
+
+  private static VersionTypeValidation invalid(
+      final WorkflowVersion version, final String message) {
+    return new VersionTypeValidation(false, Map.of(version.getInitialPath(), message));
+  }
+
+  /**
+   * Stop accepting versions and interrupt any validations still running, versions that haven't
+   * completed yet are reported as invalid.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    queued.clear();
+    executor.shutdownNow();
+    timer.shutdownNow();
+    for (final Job job : pending) {
+      job.result.complete(closedResult(job.version));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import io.dockstore.language.MinimalLanguageInterface;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link MinimalLanguageInterface.FileReader} that lists each directory only once.
+ *
+ * <p>Listing a directory can cost a GitHub API call, and every workflow registered in a directory
+ * lists it to look for its test parameter file. Concurrent requests for the same directory wait for
+ * the one listing in flight instead of issuing their own. Failed listings are not cached, the next
+ * request tries again. Files are read straight from the underlying reader.
+ *
+ * <p>A listing is kept for {@link #LISTING_TTL} after it was made, about as long as a sync takes,
+ * and listed again after that, so a reader that lives longer doesn't keep serving a stale listing.
+ */
+class CachingFileReader implements MinimalLanguageInterface.FileReader {
+  static final Duration LISTING_TTL = Duration.ofMinutes(2);
+
+  private final MinimalLanguageInterface.FileReader reader;
+  private final ConcurrentMap<String, CompletableFuture<List<String>>> listings;
+
+  CachingFileReader(final MinimalLanguageInterface.FileReader reader) {
+    this(reader, listings(LISTING_TTL, Ticker.systemTicker()));
+  }
+
+  /** An empty map of listings by directory, each dropped once older than the ttl. */
+  static ConcurrentMap<String, CompletableFuture<List<String>>> listings(
+      final Duration ttl, final Ticker ticker) {
+    return CacheBuilder.newBuilder()
+        .expireAfterWrite(ttl)
+        .ticker(ticker)
+        .<String, CompletableFuture<List<String>>>build()
+        .asMap();
+  }
+
+  /**
+   * @param listings listings by directory, shared by every {@code CachingFileReader} for the same
+   *     sync, see {@link #listings}
+   */
+  CachingFileReader(
+      final MinimalLanguageInterface.FileReader reader,
+      final ConcurrentMap<String, CompletableFuture<List<String>>> listings) {
+    this.reader = reader;
+    this.listings = listings;
+  }
+
+  @Override
+  public String readFile(final String path) {
+    return reader.readFile(path);
+  }
+
+  @Override
+  public List<String> listFiles(final String pathToDirectory) {
+    final CompletableFuture<List<String>> listing = new CompletableFuture<>();
+    final CompletableFuture<List<String>> inFlight = listings.putIfAbsent(pathToDirectory, listing);
+    if (inFlight != null) {
+      return await(inFlight);
+    }
+    try {
+      final List<String> files = reader.listFiles(pathToDirectory);
+      listing.complete(files == null ? null : Collections.unmodifiableList(new ArrayList<>(files)));
+    } catch (RuntimeException | Error e) {
+      listings.remove(pathToDirectory, listing);
+      listing.completeExceptionally(e);
+      throw e;
+    }
+    return listing.join();
+  }
+
+  // Rethrow the lister's exception as is rather than wrapped in a CompletionException.
+  private static List<String> await(final CompletableFuture<List<String>> listing) {
+    try {
+      return listing.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.galaxyproject.gxformat2.ContentHash;
+import org.galaxyproject.gxformat2.Cytoscape;
+
+/**
+ * LRU cache of Cytoscape elements keyed by a digest of the workflow text and bounded by an estimate
+ * of the retained bytes.
+ *
+ * <p>The content of a published version never changes so its DAG only needs building once. Cached
+ * elements are deeply unmodifiable since the same instance is handed to every caller.
+ *
+ * <p>Expanded subworkflows share the budget, keyed by a digest of the embedded subworkflow and the
+ * path it is shown at, so a subworkflow unchanged across versions is built once.
+ */
+class CytoscapeElementsCache {
+  static final long DEFAULT_MAXIMUM_BYTES = 16L * 1024 * 1024;
+
+  private final Cache<String, Map<String, Object>> cache;
+  // the embedded subworkflows come from cached parses, hash each of them once
+  private final Cache<Map<String, Object>, String> subworkflowDigests =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  CytoscapeElementsCache() {
+    this(DEFAULT_MAXIMUM_BYTES);
+  }
+
+  CytoscapeElementsCache(final long maximumBytes) {
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maximumBytes)
+            .weigher((String key, Map<String, Object> elements) -> estimateBytes(elements))
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Return the cached elements for these contents or build, freeze and cache them. Exceptions
+   * thrown by the builder are not cached and propagate to the caller.
+   */
+  Map<String, Object> get(final String contents, final Supplier<Map<String, Object>> builder) {
+    return getByKey(ParsedWorkflowCache.digest(contents), builder);
+  }
+
+  /** Like {@link #get(String, Supplier)} for the elements of a subworkflow expanded at a path. */
+  Map<String, Object> getSubworkflow(
+      final Map<String, Object> subworkflow,
+      final String path,
+      final Supplier<Map<String, Object>> builder) {
+    final String digest =
+        subworkflowDigests
+            .asMap()
+            .computeIfAbsent(subworkflow, map -> ContentHash.of(map).toString());
+    return getByKey(digest + ":" + path, builder);
+  }
+
+  private Map<String, Object> getByKey(
+      final String key, final Supplier<Map<String, Object>> builder) {
+    final Map<String, Object> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    final Map<String, Object> elements = (Map<String, Object>) freeze(builder.get());
+    cache.put(key, elements);
+    return elements;
+  }
+
+  /** The cached elements for these contents, null if they aren't cached. */
+  Map<String, Object> getIfPresent(final String contents) {
+    return cache.getIfPresent(ParsedWorkflowCache.digest(contents));
+  }
+
+  CacheStats stats() {
+    return cache.stats();
+  }
+
+  private static Object freeze(final Object value) {
+    if (value instanceof Map) {
+      final Map<Object, Object> copy = new LinkedHashMap<>();
+      for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        copy.put(entry.getKey(), freeze(entry.getValue()));
+      }
+      return Collections.unmodifiableMap(copy);
+    } else if (value instanceof List) {
+      final List<Object> copy = new ArrayList<>(((List<?>) value).size());
+      for (final Object item : (List<?>) value) {
+        copy.add(freeze(item));
+      }
+      return Collections.unmodifiableList(copy);
+    } else if (value == null
+        || value instanceof String
+        || value instanceof Number
+        || value instanceof Boolean) {
+      return value;
+    }
+    // anything else as the JSON it serializes to
+    return freeze(Cytoscape.objectMapper.convertValue(value, Map.class));
+  }
+
+  // Rough retained size of the frozen element tree, good enough to budget the cache.
+  static int estimateBytes(final Object value) {
+    long bytes = estimate(value);
+    return bytes > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) bytes;
+  }
+
+  private static long estimate(final Object value) {
+    if (value instanceof Map) {
+      long bytes = 64;
+      for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        bytes += 40 + estimate(entry.getKey()) + estimate(entry.getValue());
+      }
+      return bytes;
+    } else if (value instanceof List) {
+      long bytes = 40;
+      for (final Object item : (List<?>) value) {
+        bytes += 8 + estimate(item);
+      }
+      return bytes;
+    } else if (value instanceof String) {
+      return 40 + ((String) value).length();
+    } else if (value == null) {
+      return 0;
+    }
+    return 16;
+  }
+}
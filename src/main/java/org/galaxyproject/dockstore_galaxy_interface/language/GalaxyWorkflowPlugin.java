@@ -1,36 +1,50 @@
 package org.galaxyproject.dockstore_galaxy_interface.language;
 
-import static org.galaxyproject.gxformat2.Cytoscape.END_ID;
-import static org.galaxyproject.gxformat2.Cytoscape.START_ID;
-
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.collect.Lists;
+import com.google.common.base.Ticker;
+import com.google.common.base.Utf8;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Sets;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.VersionTypeValidation;
 import io.dockstore.language.CompleteLanguageInterface;
 import io.dockstore.language.RecommendedLanguageInterface;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.ObjectUtils;
 import org.galaxyproject.gxformat2.Cytoscape;
+import org.galaxyproject.gxformat2.CytoscapeOptions;
+import org.galaxyproject.gxformat2.DocumentParser;
+import org.galaxyproject.gxformat2.DocumentProjection;
 import org.galaxyproject.gxformat2.Lint;
 import org.galaxyproject.gxformat2.LintContext;
+import org.galaxyproject.gxformat2.LintVisitor;
+import org.galaxyproject.gxformat2.WorkflowAnalytics;
+import org.galaxyproject.gxformat2.WorkflowDiff;
+import org.galaxyproject.gxformat2.WorkflowFormat;
+import org.galaxyproject.gxformat2.WorkflowTraversal;
 import org.pf4j.Extension;
 import org.pf4j.Plugin;
 import org.pf4j.PluginWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.error.YAMLException;
 
 /** @author jmchilton */
@@ -38,6 +52,7 @@ public class GalaxyWorkflowPlugin extends Plugin {
   public static final Logger LOG = LoggerFactory.getLogger(GalaxyWorkflowPlugin.class);
   public static final String[] TEST_SUFFIXES = {"-tests", "_tests", "-test", "-tests"};
   public static final String[] TEST_EXTENSIONS = {".yml", ".yaml", ".json"};
+  static final Set<String> METADATA_KEYS = Set.of("name", "label", "annotation", "doc");
 
   /**
    * Constructor to be used by plugin manager for plugin instantiation. Your plugins have to provide
@@ -52,6 +67,52 @@ public class GalaxyWorkflowPlugin extends Plugin {
   @Extension
   public static class GalaxyWorkflowPluginImpl implements CompleteLanguageInterface {
     private ObjectMapper mapper = new ObjectMapper();
+    private final ParsedWorkflowCache parsedWorkflows;
+    private final CytoscapeElementsCache cytoscapeElements;
+    private volatile PluginMetrics metrics = PluginMetrics.NOOP;
+    // Dockstore hands every workflow of a sync the same reader, so directory listings are kept per
+    // reader instance. Each listing is listed again after CachingFileReader.LISTING_TTL, the
+    // listings of a reader go once it's collected or unused for 10 minutes.
+    private final Cache<FileReader, ConcurrentMap<String, CompletableFuture<List<String>>>>
+        directoryListings =
+            CacheBuilder.newBuilder().weakKeys().expireAfterAccess(10, TimeUnit.MINUTES).build();
+
+    public GalaxyWorkflowPluginImpl() {
+      this(ParsedWorkflowCache.DEFAULT_MAXIMUM_SIZE, CytoscapeElementsCache.DEFAULT_MAXIMUM_BYTES);
+    }
+
+    /**
+     * @param parsedWorkflowCacheSize maximum number of parsed workflow versions kept around so the
+     *     entry points Dockstore calls for one version share a single parse
+     * @param cytoscapeCacheBytes approximate memory budget for cached Cytoscape DAG elements
+     */
+    public GalaxyWorkflowPluginImpl(
+        final long parsedWorkflowCacheSize, final long cytoscapeCacheBytes) {
+      this.parsedWorkflows = new ParsedWorkflowCache(parsedWorkflowCacheSize, this::parseWorkflow);
+      this.cytoscapeElements = new CytoscapeElementsCache(cytoscapeCacheBytes);
+    }
+
+    /**
+     * Send timings, input sizes, workflow sizes and errors of every entry point to the given sink,
+     * e.g. an {@link InMemoryPluginMetrics}. Null turns metrics off again.
+     */
+    public void setMetrics(final PluginMetrics metrics) {
+      this.metrics = metrics == null ? PluginMetrics.NOOP : metrics;
+    }
+
+    public PluginMetrics getMetrics() {
+      return metrics;
+    }
+
+    /** Hit, miss and eviction counts for the parsed workflow cache. */
+    public CacheStats getParsedWorkflowCacheStats() {
+      return parsedWorkflows.stats();
+    }
+
+    /** Hit, miss and eviction counts for the Cytoscape elements cache. */
+    public CacheStats getCytoscapeElementsCacheStats() {
+      return cytoscapeElements.stats();
+    }
 
     /**
      * This is basically stolen from org.galaxyproject.gxformat2.Lint. However, that is generated
@@ -74,10 +135,20 @@ public class GalaxyWorkflowPlugin extends Plugin {
     @Override
     public Map<String, Object> loadCytoscapeElements(
         String initialPath, String contents, Map<String, FileMetadata> indexedFiles) {
-      final Map<String, Object> workflow = loadWorkflow(contents);
       try {
-        return Cytoscape.getElements(workflow);
+        final Map<String, Object> elements =
+            measure(
+                PluginMetrics.Operation.LOAD_CYTOSCAPE_ELEMENTS,
+                initialPath,
+                contents,
+                () -> getCytoscapeElements(contents));
+        metrics.recordWorkflowSize(
+            PluginMetrics.Operation.LOAD_CYTOSCAPE_ELEMENTS,
+            size(elements.get("nodes")),
+            size(elements.get("edges")));
+        return elements;
       } catch (ClassCastException e) {
+        // already counted as a LOAD_CYTOSCAPE_ELEMENTS error
         LOG.error(
             "ClassCastException, looks like an invalid workflow that passed the linter: "
                 + e.getMessage());
@@ -85,48 +156,300 @@ public class GalaxyWorkflowPlugin extends Plugin {
       }
     }
 
+    /**
+     * Elements of the subworkflow behind the compound node {@code path} of the DAG {@link
+     * #loadCytoscapeElements} returns, to be added as children of that node. Built on first request
+     * and cached by the content of the subworkflow. Empty if there is no subworkflow at the path.
+     */
+    public Map<String, Object> loadSubworkflowElements(
+        final String initialPath, final String contents, final String path) {
+      try {
+        final Map<String, Object> elements =
+            measure(
+                PluginMetrics.Operation.LOAD_SUBWORKFLOW_ELEMENTS,
+                initialPath,
+                contents,
+                () -> getSubworkflowElements(contents, path));
+        metrics.recordWorkflowSize(
+            PluginMetrics.Operation.LOAD_SUBWORKFLOW_ELEMENTS,
+            size(elements.get("nodes")),
+            size(elements.get("edges")));
+        return elements;
+      } catch (IllegalArgumentException | ClassCastException e) {
+        // already counted as a LOAD_SUBWORKFLOW_ELEMENTS error
+        LOG.error("Could not expand subworkflow " + path + ": " + e.getMessage());
+        return Map.of();
+      }
+    }
+
+    private Map<String, Object> getSubworkflowElements(final String contents, final String path) {
+      final Map<String, Object> subworkflow =
+          Cytoscape.getSubworkflow(parsedWorkflows.get(contents), path);
+      return cytoscapeElements.getSubworkflow(
+          subworkflow,
+          path,
+          () ->
+              measure(
+                  PluginMetrics.Operation.BUILD_CYTOSCAPE_ELEMENTS,
+                  null,
+                  null,
+                  () -> Cytoscape.getElements(subworkflow, path)));
+    }
+
+    /**
+     * Write the same JSON Dockstore gets by serializing {@link #loadCytoscapeElements}, without
+     * building the elements in memory unless they are already cached. The stream is not closed.
+     */
+    public void writeCytoscapeElements(
+        final String initialPath, final String contents, final OutputStream out)
+        throws IOException {
+      try {
+        measure(
+            PluginMetrics.Operation.LOAD_CYTOSCAPE_ELEMENTS,
+            initialPath,
+            contents,
+            () -> {
+              writeCytoscapeElements(contents, out);
+              return null;
+            });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+
+    private void writeCytoscapeElements(final String contents, final OutputStream out) {
+      try {
+        final Map<String, Object> cached = cytoscapeElements.getIfPresent(contents);
+        if (cached != null) {
+          Cytoscape.objectMapper
+              .writer()
+              .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+              .writeValue(out, cached);
+        } else {
+          Cytoscape.writeElements(parsedWorkflows.get(contents), out);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Steps and connections added, removed or changed between two versions of a workflow, see
+     * {@link WorkflowDiff}. Both versions go through the parsed workflow cache, which keeps their
+     * step graphs too.
+     */
+    public WorkflowDiff diffWorkflows(final String beforeContents, final String afterContents) {
+      return measure(
+          PluginMetrics.Operation.DIFF_WORKFLOWS,
+          null,
+          afterContents,
+          () ->
+              WorkflowDiff.compare(
+                  parsedWorkflows.graph(beforeContents), parsedWorkflows.graph(afterContents)));
+    }
+
+    /**
+     * Critical path, parallel width, step depths and fan-in/fan-out distributions of the workflow,
+     * see {@link WorkflowAnalytics}.
+     */
+    public WorkflowAnalytics analyzeWorkflow(final String initialPath, final String contents) {
+      final WorkflowAnalytics analytics =
+          measure(
+              PluginMetrics.Operation.ANALYZE_WORKFLOW,
+              initialPath,
+              contents,
+              () -> WorkflowAnalytics.of(parsedWorkflows.get(contents)));
+      metrics.recordWorkflowSize(
+          PluginMetrics.Operation.ANALYZE_WORKFLOW, analytics.getStepCount(), -1);
+      return analytics;
+    }
+
+    /**
+     * Validation, DAG, tools table and metadata of a workflow version, the results of {@link
+     * #validateWorkflowSet}, {@link #loadCytoscapeElements}, {@link #generateToolsTable} and {@link
+     * #parseWorkflowForMetadata}, from a single traversal of the workflow. A workflow too malformed
+     * to traverse goes through each of those separately instead, with an empty tools table if it
+     * can't be built.
+     */
+    public VersionAnalysis analyzeVersion(
+        final String initialPath,
+        final String contents,
+        final Map<String, FileMetadata> indexedFiles) {
+      final VersionAnalysis analysis =
+          measure(
+              PluginMetrics.Operation.ANALYZE_VERSION,
+              initialPath,
+              contents,
+              () -> analyze(initialPath, contents, indexedFiles));
+      if (analysis != null) {
+        return analysis;
+      }
+      final VersionTypeValidation validation =
+          validateWorkflowSet(initialPath, contents, indexedFiles);
+      final Map<String, Object> elements =
+          loadCytoscapeElements(initialPath, contents, indexedFiles);
+      List<RowData> toolsTable;
+      try {
+        toolsTable = generateToolsTable(initialPath, contents, indexedFiles);
+      } catch (RuntimeException e) {
+        // the validation and DAG are still worth returning
+        LOG.error(
+            "Could not build the tools table of Galaxy Workflow file "
+                + initialPath
+                + ": "
+                + e.getMessage());
+        toolsTable = List.of();
+      }
+      return new VersionAnalysis(
+          validation,
+          elements,
+          toolsTable,
+          parseWorkflowForMetadata(initialPath, contents, indexedFiles));
+    }
+
+    // Null if the workflow can't be traversed.
+    private VersionAnalysis analyze(
+        final String initialPath,
+        final String contents,
+        final Map<String, FileMetadata> indexedFiles) {
+      final Map<String, Object> workflow = parsedWorkflows.get(contents);
+      final LintVisitor lint = new LintVisitor();
+      final ToolsTableExtractor toolsTable = new ToolsTableExtractor();
+      final Cytoscape.ElementsVisitor elements =
+          cytoscapeElements.getIfPresent(contents) == null
+              ? new Cytoscape.ElementsVisitor(CytoscapeOptions.DEFAULT)
+              : null;
+      try {
+        WorkflowTraversal.traverse(
+            workflow,
+            elements == null ? List.of(lint, toolsTable) : List.of(lint, toolsTable, elements));
+      } catch (RuntimeException e) {
+        LOG.debug("Galaxy Workflow file " + initialPath + " can't be traversed " + e);
+        return null;
+      }
+      metrics.recordWorkflowSize(
+          PluginMetrics.Operation.ANALYZE_VERSION, size(workflow.get("steps")), -1);
+      return new VersionAnalysis(
+          toValidation(initialPath, lint.getLintContext()),
+          cytoscapeElements.get(
+              contents,
+              // evicted since, unlikely
+              elements == null ? () -> Cytoscape.getElements(workflow) : elements::getElements),
+          toolsTable.getRows(),
+          readMetadata(() -> workflow, indexedFiles));
+    }
+
     @Override
     public List<RowData> generateToolsTable(
         String initialPath, String contents, Map<String, FileMetadata> indexedFiles) {
-      final Map<String, Object> workflow = loadWorkflow(contents);
-      final Map<String, Object> elements = Cytoscape.getElements(workflow);
-      final List<Map> nodes = (List<Map>) elements.getOrDefault("nodes", Lists.newArrayList());
-      removeStartAndEndNodes(nodes);
-      return nodes.stream()
-          .map(
-              node -> {
-                final RowData rowData = new RowData();
-                final Map<String, Object> nodeData = (Map<String, Object>) node.get("data");
-                rowData.label = (String) nodeData.getOrDefault("label", "");
-                rowData.dockerContainer = (String) nodeData.getOrDefault("docker", "");
-                rowData.filename = (String) nodeData.getOrDefault("run", "");
-                // TODO: get a sane link here when Docker is hooked up
-                try {
-                  rowData.link = new URL((String) node.getOrDefault("repo_link", ""));
-                } catch (MalformedURLException e) {
-                  rowData.link = null;
-                }
-                rowData.rowType = RowType.TOOL;
-                rowData.toolid = (String) nodeData.getOrDefault("id", "");
-                return rowData;
-              })
-          .collect(Collectors.toList());
-    }
-
-    // Remove start and end nodes that were added for DAG
-    private void removeStartAndEndNodes(List<Map> nodes) {
-      nodes.removeIf(
-          node -> {
-            Map data = (Map) node.get("data");
-            String id = (String) data.get("id");
-            return START_ID.equals(id) || END_ID.equals(id);
+      return measure(
+          PluginMetrics.Operation.GENERATE_TOOLS_TABLE,
+          initialPath,
+          contents,
+          () -> ToolsTableExtractor.extract(parsedWorkflows.get(contents)));
+    }
+
+    private Map<String, Object> getCytoscapeElements(final String contents) {
+      return cytoscapeElements.get(
+          contents,
+          () -> {
+            final Map<String, Object> workflow = parsedWorkflows.get(contents);
+            return measure(
+                PluginMetrics.Operation.BUILD_CYTOSCAPE_ELEMENTS,
+                null,
+                contents,
+                () -> Cytoscape.getElements(workflow));
           });
     }
 
+    private Map<String, Object> parseWorkflow(final String contents) {
+      return measure(PluginMetrics.Operation.PARSE, null, contents, () -> loadWorkflow(contents));
+    }
+
+    /** Time the call and report it, and its exception if it throws one, to the metrics sink. */
+    private <T> T measure(
+        final PluginMetrics.Operation operation,
+        final String initialPath,
+        final String contents,
+        final Supplier<T> call) {
+      final PluginMetrics sink = metrics;
+      if (sink == PluginMetrics.NOOP) {
+        return call.get();
+      }
+      final long start = System.nanoTime();
+      try {
+        return call.get();
+      } catch (RuntimeException | Error e) {
+        sink.recordError(operation, e);
+        throw e;
+      } finally {
+        sink.recordCall(operation, initialPath, System.nanoTime() - start, utf8Length(contents));
+      }
+    }
+
+    private static long utf8Length(final String contents) {
+      if (contents == null) {
+        return 0;
+      }
+      try {
+        return Utf8.encodedLength(contents);
+      } catch (IllegalArgumentException e) {
+        // unpaired surrogate, close enough
+        return contents.length();
+      }
+    }
+
+    private static int size(final Object collection) {
+      if (collection instanceof Collection) {
+        return ((Collection<?>) collection).size();
+      } else if (collection instanceof Map) {
+        return ((Map<?, ?>) collection).size();
+      }
+      return -1;
+    }
+
     @Override
     public VersionTypeValidation validateWorkflowSet(
         String initialPath, String contents, Map<String, FileMetadata> indexedFiles) {
-      final LintContext lintContext = Lint.lint(loadWorkflow(contents));
+      return measure(
+          PluginMetrics.Operation.VALIDATE_WORKFLOW_SET,
+          initialPath,
+          contents,
+          () -> validate(initialPath, contents, 0));
+    }
+
+    /**
+     * Like {@link #validateWorkflowSet(String, String, Map)}, but linting stops after {@code
+     * errorBudget} errors, for when only validity and the first few errors matter. Warnings don't
+     * count, so a workflow with only warnings is linted once, in full.
+     */
+    public VersionTypeValidation validateWorkflowSet(
+        final String initialPath, final String contents, final int errorBudget) {
+      return measure(
+          PluginMetrics.Operation.VALIDATE_WORKFLOW_SET,
+          initialPath,
+          contents,
+          () -> validate(initialPath, contents, errorBudget));
+    }
+
+    private VersionTypeValidation validate(
+        final String initialPath, final String contents, final int errorBudget) {
+      final Map<String, Object> workflow = parsedWorkflows.get(contents);
+      metrics.recordWorkflowSize(
+          PluginMetrics.Operation.VALIDATE_WORKFLOW_SET,
+          workflow == null ? -1 : size(workflow.get("steps")),
+          -1);
+      final LintContext lintContext =
+          measure(
+              PluginMetrics.Operation.LINT,
+              null,
+              contents,
+              () -> Lint.lint(workflow, false, errorBudget));
+      return toValidation(initialPath, lintContext);
+    }
+
+    private static VersionTypeValidation toValidation(
+        final String initialPath, final LintContext lintContext) {
       final boolean valid;
       valid = !lintContext.getFoundErrors();
       final Map<String, String> messagesAsMap = new HashMap<>();
@@ -165,32 +488,56 @@ public class GalaxyWorkflowPlugin extends Plugin {
     @Override
     public Map<String, FileMetadata> indexWorkflowFiles(
         final String initialPath, final String contents, final FileReader reader) {
+      return measure(
+          PluginMetrics.Operation.INDEX_WORKFLOW_FILES,
+          initialPath,
+          contents,
+          () -> index(initialPath, contents, reader));
+    }
+
+    private Map<String, FileMetadata> index(
+        final String initialPath, final String contents, final FileReader reader) {
       Map<String, FileMetadata> results = new HashMap<>();
 
-      // identify filetype of initial descriptor, copied from Lint.java
+      // identify filetype of initial descriptor from its top-level keys, this only parses the
+      // whole document if the beginning of it is ambiguous
+      final WorkflowFormat.Detection detection =
+          WorkflowFormat.detect(
+              contents, WorkflowFormat.DEFAULT_PREFIX_LENGTH, parsedWorkflows::get);
       String languageVersion = null;
-      try {
-        final Map<String, Object> workflowMap = loadWorkflow(contents);
-        if (isGXFormat2Workflow(workflowMap)) {
-          languageVersion = "gxformat2";
-        } else {
-          languageVersion = "gxformat1";
-        }
-      } catch (Exception e) {
-        // do nothing
+      if (detection.getFormat() == WorkflowFormat.Format.FORMAT2) {
+        languageVersion = "gxformat2";
+      } else if (detection.getFormat() == WorkflowFormat.Format.NATIVE) {
+        languageVersion = "gxformat1";
       }
 
       results.put(
           initialPath,
           new FileMetadata(contents, GenericFileType.IMPORTED_DESCRIPTOR, languageVersion));
 
-      final Optional<String> testParameterFile = findTestParameterFile(initialPath, reader);
+      final Optional<String> testParameterFile =
+          findTestParameterFile(initialPath, withListingCache(reader));
       testParameterFile.ifPresent(
           // TODO - get language version into here
           s -> results.put(s, new FileMetadata(s, GenericFileType.TEST_PARAMETER_FILE, null)));
       return results;
     }
 
+    private FileReader withListingCache(final FileReader reader) {
+      if (reader == null || reader instanceof CachingFileReader) {
+        return reader;
+      }
+      return new CachingFileReader(
+          reader,
+          directoryListings
+              .asMap()
+              .computeIfAbsent(
+                  reader,
+                  r ->
+                      CachingFileReader.listings(
+                          CachingFileReader.LISTING_TTL, Ticker.systemTicker())));
+    }
+
     protected Optional<String> findTestParameterFile(
         final String initialPath, final FileReader reader) {
       final int extensionPos = initialPath.lastIndexOf(".");
@@ -224,19 +571,49 @@ public class GalaxyWorkflowPlugin extends Plugin {
     }
 
     static Map<String, Object> loadWorkflow(final String content) {
-      final Yaml yaml = new Yaml();
-      final Map map = yaml.loadAs(content, Map.class);
+      final Map map = DocumentParser.loadAs(content, Map.class);
       return (Map<String, Object>) map;
     }
 
+    // Only the top-level keys are needed, avoid building the whole document unless it's cached.
+    private Map<String, Object> readMetadataKeys(final String content) {
+      final Map<String, Object> parsed = parsedWorkflows.getIfPresent(content);
+      if (parsed != null) {
+        return parsed;
+      }
+      final Map<String, Object> projected = DocumentProjection.readTopLevel(content, METADATA_KEYS);
+      if (projected == null) {
+        throw new YAMLException("workflow document is not a mapping");
+      }
+      return projected;
+    }
+
     @Override
     public RecommendedLanguageInterface.WorkflowMetadata parseWorkflowForMetadata(
         String initialPath, String content, Map<String, FileMetadata> indexedFiles) {
+      return measure(
+          PluginMetrics.Operation.PARSE_WORKFLOW_FOR_METADATA,
+          initialPath,
+          content,
+          () -> readMetadata(content, indexedFiles));
+    }
+
+    private RecommendedLanguageInterface.WorkflowMetadata readMetadata(
+        final String content, final Map<String, FileMetadata> indexedFiles) {
+      return readMetadata(
+          content != null && !content.isEmpty() ? () -> readMetadataKeys(content) : null,
+          indexedFiles);
+    }
+
+    // Metadata from the top-level keys the supplier reads, none without a supplier.
+    private RecommendedLanguageInterface.WorkflowMetadata readMetadata(
+        final Supplier<Map<String, Object>> metadataKeys,
+        final Map<String, FileMetadata> indexedFiles) {
       RecommendedLanguageInterface.WorkflowMetadata metadata =
           new RecommendedLanguageInterface.WorkflowMetadata();
-      if (content != null && !content.isEmpty()) {
+      if (metadataKeys != null) {
         try {
-          final Map<String, Object> map = loadWorkflow(content);
+          final Map<String, Object> map = metadataKeys.get();
           String name = null;
           try {
             name = (String) map.get("name");
@@ -305,6 +682,7 @@ public class GalaxyWorkflowPlugin extends Plugin {
             message = ex.toString();
           }
           LOG.info("Galaxy Workflow file is malformed " + message);
+          metrics.recordError(PluginMetrics.Operation.PARSE_WORKFLOW_FOR_METADATA, ex);
           // CWL parser gets to put validation information in here,
           // plugin interface doesn't consume the right information though.
           // https://github.com/dockstore/dockstore/blob/develop/dockstore-webservice/src/main/java/io/dockstore/webservice/languages/CWLHandler.java#L139
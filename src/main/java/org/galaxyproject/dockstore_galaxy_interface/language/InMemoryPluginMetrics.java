@@ -0,0 +1,165 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PluginMetrics} keeping per-operation counters and latency histograms in memory, for
+ * scraping through {@link #get(PluginMetrics.Operation)}.
+ *
+ * <p>Latencies go into power of two buckets of nanoseconds, so percentiles are upper bounds that
+ * are at most a factor of two off.
+ */
+public class InMemoryPluginMetrics implements PluginMetrics {
+  static final int BUCKETS = 64;
+
+  private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+  public InMemoryPluginMetrics() {
+    for (final Operation operation : Operation.values()) {
+      stats.put(operation, new OperationStats());
+    }
+  }
+
+  public OperationStats get(final Operation operation) {
+    return stats.get(operation);
+  }
+
+  @Override
+  public void recordCall(
+      final Operation operation,
+      final String initialPath,
+      final long elapsedNanos,
+      final long inputBytes) {
+    final OperationStats operationStats = stats.get(operation);
+    operationStats.latencyBuckets.incrementAndGet(bucket(elapsedNanos));
+    operationStats.count.increment();
+    operationStats.totalNanos.add(elapsedNanos);
+    operationStats.maxNanos.accumulate(elapsedNanos);
+    operationStats.inputBytes.add(inputBytes);
+    operationStats.maxInputBytes.accumulate(inputBytes);
+  }
+
+  @Override
+  public void recordError(final Operation operation, final Throwable error) {
+    stats
+        .get(operation)
+        .errors
+        .computeIfAbsent(error.getClass().getName(), type -> new LongAdder())
+        .increment();
+  }
+
+  @Override
+  public void recordWorkflowSize(final Operation operation, final int steps, final int edges) {
+    final OperationStats operationStats = stats.get(operation);
+    if (steps >= 0) {
+      operationStats.steps.add(steps);
+      operationStats.maxSteps.accumulate(steps);
+    }
+    if (edges >= 0) {
+      operationStats.edges.add(edges);
+      operationStats.maxEdges.accumulate(edges);
+    }
+  }
+
+  // bucket i holds latencies in [2^(i-1), 2^i) nanoseconds
+  private static int bucket(final long nanos) {
+    return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+  }
+
+  /** Counters of one operation, all totals are since creation. */
+  public static class OperationStats {
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAccumulator maxInputBytes = new LongAccumulator(Math::max, 0);
+    private final LongAdder steps = new LongAdder();
+    private final LongAccumulator maxSteps = new LongAccumulator(Math::max, 0);
+    private final LongAdder edges = new LongAdder();
+    private final LongAccumulator maxEdges = new LongAccumulator(Math::max, 0);
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getTotalNanos() {
+      return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+      return maxNanos.get();
+    }
+
+    /**
+     * Upper bound of the latency below which the given fraction of calls fall, 0 if there were no
+     * calls.
+     */
+    public long getPercentileNanos(final double fraction) {
+      final long[] buckets = getLatencyBuckets();
+      long total = 0;
+      for (final long bucketCount : buckets) {
+        total += bucketCount;
+      }
+      final long rank = (long) Math.ceil(fraction * total);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0) {
+          return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+        }
+      }
+      return 0;
+    }
+
+    /** Call counts per latency bucket, bucket i counts calls taking less than 2^i nanoseconds. */
+    public long[] getLatencyBuckets() {
+      final long[] buckets = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = latencyBuckets.get(i);
+      }
+      return buckets;
+    }
+
+    public long getInputBytes() {
+      return inputBytes.sum();
+    }
+
+    public long getMaxInputBytes() {
+      return maxInputBytes.get();
+    }
+
+    public long getSteps() {
+      return steps.sum();
+    }
+
+    public long getMaxSteps() {
+      return maxSteps.get();
+    }
+
+    public long getEdges() {
+      return edges.sum();
+    }
+
+    public long getMaxEdges() {
+      return maxEdges.get();
+    }
+
+    public long getErrorCount() {
+      return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /** Error counts keyed by exception class name. */
+    public Map<String, Long> getErrors() {
+      final Map<String, Long> counts = new ConcurrentHashMap<>();
+      errors.forEach((type, adder) -> counts.put(type, adder.sum()));
+      return counts;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+import org.galaxyproject.gxformat2.WorkflowAdapter;
+import org.galaxyproject.gxformat2.WorkflowGraph;
+
+/**
+ * Bounded cache of parsed workflow documents keyed by a digest of the workflow text.
+ *
+ * <p>Dockstore hands the same descriptor contents to several plugin entry points while syncing a
+ * version, this lets them share a single parse. Cached documents are shared between callers,
+ * possibly on different threads, and must be treated as read-only. The step graph of a document is
+ * built once, when first asked for, and cached with it.
+ */
+class ParsedWorkflowCache {
+  static final long DEFAULT_MAXIMUM_SIZE = 64;
+
+  private final Cache<String, Entry> cache;
+  private final Function<String, Map<String, Object>> loader;
+
+  ParsedWorkflowCache() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  ParsedWorkflowCache(final long maximumSize) {
+    this(maximumSize, GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl::loadWorkflow);
+  }
+
+  ParsedWorkflowCache(final long maximumSize, final Function<String, Map<String, Object>> loader) {
+    this.loader = loader;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  private static final class Entry {
+    private final Map<String, Object> parsed;
+    private volatile WorkflowGraph graph;
+
+    private Entry(final Map<String, Object> parsed) {
+      this.parsed = parsed;
+    }
+
+    private WorkflowGraph graph() {
+      WorkflowGraph built = graph;
+      if (built == null) {
+        // two threads may both build it, either graph will do
+        built = WorkflowAdapter.forWorkflow(parsed).graph();
+        graph = built;
+      }
+      return built;
+    }
+  }
+
+  static String digest(final String contents) {
+    return Hashing.sha256().hashString(contents, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * Return the parsed document for these contents, parsing them only if they are not cached yet.
+   * Parse failures are not cached and propagate to the caller unchanged.
+   */
+  Map<String, Object> get(final String contents) {
+    final Entry entry = entry(contents);
+    return entry == null ? null : entry.parsed;
+  }
+
+  /**
+   * The step graph of the parsed document for these contents, built only once while it is cached.
+   * Null if the contents parse to nothing.
+   */
+  WorkflowGraph graph(final String contents) {
+    final Entry entry = entry(contents);
+    return entry == null ? null : entry.graph();
+  }
+
+  private Entry entry(final String contents) {
+    final String key = digest(contents);
+    final Entry cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    final Map<String, Object> parsed = loader.apply(contents);
+    if (parsed == null) {
+      return null;
+    }
+    final Entry entry = new Entry(parsed);
+    cache.put(key, entry);
+    return entry;
+  }
+
+  /**
+   * The parsed document for these contents if it is already cached, null otherwise. Not counted as
+   * a hit or miss, so the miss count stays the number of parses.
+   */
+  Map<String, Object> getIfPresent(final String contents) {
+    final Entry entry = cache.asMap().get(digest(contents));
+    return entry == null ? null : entry.parsed;
+  }
+
+  CacheStats stats() {
+    return cache.stats();
+  }
+
+  long size() {
+    return cache.size();
+  }
+}
@@ -0,0 +1,46 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+/**
+ * Sink for timing and size measurements of the plugin, see {@link
+ * GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl#setMetrics(PluginMetrics)}.
+ *
+ * <p>Methods are called synchronously on the thread doing the work, possibly from several threads
+ * at once, so implementations must be thread-safe and cheap. Every method defaults to doing
+ * nothing.
+ */
+public interface PluginMetrics {
+  PluginMetrics NOOP = new PluginMetrics() {};
+
+  enum Operation {
+    // plugin entry points
+    INDEX_WORKFLOW_FILES,
+    PARSE_WORKFLOW_FOR_METADATA,
+    VALIDATE_WORKFLOW_SET,
+    LOAD_CYTOSCAPE_ELEMENTS,
+    LOAD_SUBWORKFLOW_ELEMENTS,
+    GENERATE_TOOLS_TABLE,
+    DIFF_WORKFLOWS,
+    ANALYZE_WORKFLOW,
+    ANALYZE_VERSION,
+    // phases of the entry points above, only recorded when they actually run (e.g. not on a cache
+    // hit)
+    PARSE,
+    LINT,
+    BUILD_CYTOSCAPE_ELEMENTS
+  }
+
+  /**
+   * One completed call, successful or not.
+   *
+   * @param initialPath path of the workflow descriptor for entry points, null for phases
+   * @param inputBytes UTF-8 length of the workflow contents
+   */
+  default void recordCall(
+      Operation operation, String initialPath, long elapsedNanos, long inputBytes) {}
+
+  /** A call that failed, or handled an error and returned a degraded result. */
+  default void recordError(Operation operation, Throwable error) {}
+
+  /** Size of the workflow a call worked on, -1 where a count isn't known. */
+  default void recordWorkflowSize(Operation operation, int steps, int edges) {}
+}
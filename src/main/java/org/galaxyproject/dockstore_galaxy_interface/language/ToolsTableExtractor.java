@@ -0,0 +1,59 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+import io.dockstore.language.CompleteLanguageInterface.RowData;
+import io.dockstore.language.CompleteLanguageInterface.RowType;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.galaxyproject.gxformat2.Cytoscape;
+import org.galaxyproject.gxformat2.StepVisitor;
+import org.galaxyproject.gxformat2.WorkflowGraph;
+import org.galaxyproject.gxformat2.WorkflowTraversal;
+
+/**
+ * Builds the Dockstore tools table straight from the workflow graph, without building the DAG.
+ * Steps of embedded subworkflows are listed after the subworkflow step with their ID prefixed by
+ * the ID of the step that runs them (e.g. {@code 3/1}). Also a {@link StepVisitor}, to build the
+ * table during a traversal shared with other consumers.
+ *
+ * <p>Rows link to the Tool Shed repository of their tool, like the {@code repo_link} of the DAG
+ * nodes, and have no link for steps not from a Tool Shed. The table built from the DAG never had a
+ * link, it looked for {@code repo_link} outside of the node data.
+ */
+class ToolsTableExtractor implements StepVisitor {
+  private final List<RowData> rows = new ArrayList<>();
+
+  static List<RowData> extract(final Map<String, Object> workflow) {
+    final ToolsTableExtractor extractor = new ToolsTableExtractor();
+    WorkflowTraversal.traverse(workflow, List.of(extractor));
+    return extractor.getRows();
+  }
+
+  List<RowData> getRows() {
+    return rows;
+  }
+
+  @Override
+  public void enterStep(final WorkflowTraversal.Level level, final int step) {
+    final WorkflowGraph graph = level.getGraph();
+    rows.add(toRow(level.getIdPrefix() + graph.id(step), graph, step));
+  }
+
+  private static RowData toRow(final String id, final WorkflowGraph graph, final int step) {
+    final RowData rowData = new RowData();
+    rowData.label = Cytoscape.displayLabel(graph, step);
+    rowData.dockerContainer = Cytoscape.NOT_DETECTED;
+    rowData.filename = Cytoscape.NOT_DETECTED;
+    final String repoLink = Cytoscape.toolShedRepositoryLink(graph.step(step).getStepDefinition());
+    try {
+      rowData.link = repoLink != null ? new URL(repoLink) : null;
+    } catch (MalformedURLException e) {
+      rowData.link = null;
+    }
+    rowData.rowType = RowType.TOOL;
+    rowData.toolid = id;
+    return rowData;
+  }
+}
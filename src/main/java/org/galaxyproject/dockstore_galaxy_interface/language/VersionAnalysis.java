@@ -0,0 +1,45 @@
+package org.galaxyproject.dockstore_galaxy_interface.language;
+
+import io.dockstore.common.VersionTypeValidation;
+import io.dockstore.language.CompleteLanguageInterface.RowData;
+import io.dockstore.language.RecommendedLanguageInterface.WorkflowMetadata;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything Dockstore reads from a workflow version when syncing it, see {@link
+ * GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl#analyzeVersion}.
+ */
+public class VersionAnalysis {
+  private final VersionTypeValidation validation;
+  private final Map<String, Object> cytoscapeElements;
+  private final List<RowData> toolsTable;
+  private final WorkflowMetadata metadata;
+
+  VersionAnalysis(
+      final VersionTypeValidation validation,
+      final Map<String, Object> cytoscapeElements,
+      final List<RowData> toolsTable,
+      final WorkflowMetadata metadata) {
+    this.validation = validation;
+    this.cytoscapeElements = cytoscapeElements;
+    this.toolsTable = toolsTable;
+    this.metadata = metadata;
+  }
+
+  public VersionTypeValidation getValidation() {
+    return validation;
+  }
+
+  public Map<String, Object> getCytoscapeElements() {
+    return cytoscapeElements;
+  }
+
+  public List<RowData> getToolsTable() {
+    return toolsTable;
+  }
+
+  public WorkflowMetadata getMetadata() {
+    return metadata;
+  }
+}
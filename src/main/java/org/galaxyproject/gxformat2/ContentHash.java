@@ -0,0 +1,72 @@
+package org.galaxyproject.gxformat2;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash of parsed workflow content (maps, lists and scalars), without serializing it first. Map
+ * entries are hashed in iteration order, which for parsed documents is the order in the text, or in
+ * key order with {@link #putUnordered}.
+ */
+public final class ContentHash {
+  private static final HashFunction FUNCTION = Hashing.sha256();
+
+  private ContentHash() {}
+
+  public static HashCode of(final Object value) {
+    final Hasher hasher = newHasher();
+    put(hasher, value);
+    return hasher.hash();
+  }
+
+  public static void put(final Hasher hasher, final Object value) {
+    put(hasher, value, false);
+  }
+
+  /** Like {@link #put}, but the same for maps that only differ in the order of their keys. */
+  public static void putUnordered(final Hasher hasher, final Object value) {
+    put(hasher, value, true);
+  }
+
+  // Type tags and lengths keep e.g. ["a", "b"] and ["ab"] apart.
+  private static void put(final Hasher hasher, final Object value, final boolean unordered) {
+    if (value instanceof Map) {
+      hasher.putChar('{').putInt(((Map<?, ?>) value).size());
+      Collection<? extends Map.Entry<?, ?>> entries = ((Map<?, ?>) value).entrySet();
+      if (unordered) {
+        final List<Map.Entry<?, ?>> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(entry -> String.valueOf(entry.getKey())));
+        entries = sorted;
+      }
+      for (final Map.Entry<?, ?> entry : entries) {
+        put(hasher, entry.getKey(), unordered);
+        put(hasher, entry.getValue(), unordered);
+      }
+    } else if (value instanceof List) {
+      hasher.putChar('[').putInt(((List<?>) value).size());
+      for (final Object item : (List<?>) value) {
+        put(hasher, item, unordered);
+      }
+    } else if (value == null) {
+      hasher.putChar('n');
+    } else {
+      final String string = value.toString();
+      hasher
+          .putChar(value instanceof String ? 's' : 'v')
+          .putInt(string.length())
+          .putString(string, StandardCharsets.UTF_8);
+    }
+  }
+
+  public static Hasher newHasher() {
+    return FUNCTION.newHasher();
+  }
+}
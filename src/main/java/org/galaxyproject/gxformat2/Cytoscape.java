@@ -2,238 +2,796 @@ package org.galaxyproject.gxformat2;
 
 import static org.galaxyproject.dockstore_galaxy_interface.language.GalaxyWorkflowPlugin.LOG;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * General notes: There's no guarantee that a normalized step has a label, step definition ID or
  * state
+ *
+ * <p>Steps running an embedded subworkflow are compound nodes (class {@code compound}) without
+ * children, their steps are built on demand by {@link #getSubworkflowElements(Map, String)}. Nested
+ * node IDs are the path of steps leading to them joined by {@code /}, so the ID of a compound node
+ * is the path to pass to expand it.
+ *
+ * <p>When no step of a workflow has a {@code position}, its steps are placed by a {@link
+ * LayeredLayout} instead. When only some have one, those keep it and the {@link LayeredLayout}
+ * places the others around them. Above the node budget of the {@link CytoscapeOptions}, fan-out
+ * groups and chains of steps are collapsed into {@code aggregate} nodes, see {@link
+ * #expandAggregate(Map, String, String, CytoscapeOptions)}.
  */
 public class Cytoscape {
   public static final ObjectMapper objectMapper = new ObjectMapper();
   public static final String MAIN_TS_PREFIX = "toolshed.g2.bx.psu.edu/repos/";
   public static final String START_ID = "UniqueBeginKey";
   public static final String END_ID = "UniqueEndKey";
+  /** What step nodes show as their Docker image and run, until those are detected properly. */
+  public static final String NOT_DETECTED = "TBD";
+
+  // Constant parts of the elements, built once and shared by every result. Node classes by step
+  // type, the few step types there are fill these up quickly.
+  private static final Map<String, Object> START_NODE = sentinelNodeElement(START_ID);
+  private static final Map<String, Object> END_NODE = sentinelNodeElement(END_ID);
+  private static final Map<String, List<String>> STEP_CLASSES = new ConcurrentHashMap<>();
+  private static final Map<String, List<String>> COMPOUND_CLASSES = new ConcurrentHashMap<>();
+  private static final Map<String, List<String>> AGGREGATE_CLASSES = new ConcurrentHashMap<>();
 
   public static Map<String, Object> getElements(final String path) throws Exception {
     final Map<String, Object> object = (Map<String, Object>) IoUtils.readYamlFromPath(path);
     return getElements(object);
   }
 
-  private static class IdAndLabel {
-    private String id;
-    private String label;
+  /**
+   * Build the Cytoscape.js elements of the workflow as nested maps and lists, {@code nodes} before
+   * {@code edges} and every map in a fixed key order.
+   */
+  public static Map<String, Object> getElements(final Map<String, Object> object) {
+    return getElements(object, null, CytoscapeOptions.DEFAULT);
+  }
+
+  /**
+   * The elements of the subworkflow run by the step at {@code path}, the children of the compound
+   * node with that ID. Unlike the top level there are no begin and end nodes.
+   *
+   * @throws IllegalArgumentException if there is no step with an embedded subworkflow at the path
+   */
+  public static Map<String, Object> getSubworkflowElements(
+      final Map<String, Object> object, final String path) {
+    return getElements(getSubworkflow(object, path), path);
+  }
+
+  /**
+   * Build the elements of a workflow, nested in the compound node {@code parent} unless that is
+   * null. {@code object} is the subworkflow {@link #getSubworkflow(Map, String)} finds at that
+   * path.
+   */
+  public static Map<String, Object> getElements(
+      final Map<String, Object> object, final String parent) {
+    return getElements(object, parent, CytoscapeOptions.DEFAULT);
+  }
+
+  /**
+   * Like {@link #getElements(Map, String)} with the given layout and node budget. Over the budget,
+   * groups of steps are shown as {@code aggregate} nodes, connected like the steps they stand for.
+   */
+  public static Map<String, Object> getElements(
+      final Map<String, Object> object, final String parent, final CytoscapeOptions options) {
+    return build(object, parent, options, null);
+  }
+
+  /**
+   * The steps an aggregate node of {@link #getElements(Map, String, CytoscapeOptions)} stands for,
+   * as children of that node, and the connections into, out of and within it. Steps outside the
+   * aggregate keep the node IDs they have in the summary. The options must be the ones the summary
+   * was built with.
+   *
+   * @throws IllegalArgumentException if there is no such aggregate node
+   */
+  public static Map<String, Object> expandAggregate(
+      final Map<String, Object> object,
+      final String parent,
+      final String aggregateId,
+      final CytoscapeOptions options) {
+    return build(object, parent, options, aggregateId);
+  }
 
-    IdAndLabel(String id, String label) {
-      this.setId(id);
-      this.setLabel(label);
+  private static Map<String, Object> build(
+      final Map<String, Object> object,
+      final String parent,
+      final CytoscapeOptions options,
+      final String expandedAggregate) {
+    final MapSink sink = new MapSink();
+    try {
+      emit(object, sink, parent, options, expandedAggregate);
+    } catch (IOException e) {
+      // the map sink doesn't do any I/O
+      throw new UncheckedIOException(e);
+    }
+    return sink.elements;
+  }
+
+  /**
+   * Write the Cytoscape.js elements of the workflow to the generator without building them in
+   * memory first. The output is the same as serializing {@link #getElements(Map)} with the same
+   * generator.
+   */
+  public static void writeElements(final Map<String, Object> object, final JsonGenerator generator)
+      throws IOException {
+    writeElements(object, generator, CytoscapeOptions.DEFAULT);
+  }
+
+  /** Like {@link #writeElements(Map, JsonGenerator)} with the given options. */
+  public static void writeElements(
+      final Map<String, Object> object,
+      final JsonGenerator generator,
+      final CytoscapeOptions options)
+      throws IOException {
+    emit(object, new JsonSink(generator), null, options, null);
+  }
+
+  /** Write the elements as UTF-8 JSON, the stream is flushed but not closed. */
+  public static void writeElements(final Map<String, Object> object, final OutputStream out)
+      throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      writeElements(object, generator);
     }
+  }
+
+  /**
+   * Builds the elements of the top-level workflow of a {@link WorkflowTraversal}, the same as
+   * {@link #getElements(Map, String, CytoscapeOptions)} but from the graph of the traversal.
+   */
+  public static class ElementsVisitor implements StepVisitor {
+    private final CytoscapeOptions options;
+    private Map<String, Object> elements;
 
-    public String getId() {
-      return id;
+    public ElementsVisitor(final CytoscapeOptions options) {
+      this.options = options;
     }
 
-    public void setId(String id) {
-      this.id = id;
+    @Override
+    public void enterWorkflow(final WorkflowTraversal.Level level) {
+      if (level.getParent() == null) {
+        final MapSink sink = new MapSink();
+        try {
+          emit(level.getGraph(), sink, null, options, null);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        elements = sink.elements;
+      }
     }
 
-    public String getLabel() {
-      return label;
+    /** The elements, null before the traversal. */
+    public Map<String, Object> getElements() {
+      return elements;
     }
+  }
+
+  /** Receives the elements in output order, all nodes first and then all edges. */
+  private interface ElementSink {
+    void sentinelNode(String id) throws IOException;
+
+    void stepNode(
+        String id,
+        String parent,
+        String label,
+        String toolId,
+        String doc,
+        String repoLink,
+        String stepType,
+        List<String> classes,
+        long x,
+        long y,
+        WorkflowAnalytics analytics,
+        int step)
+        throws IOException;
+
+    void endNodes() throws IOException;
 
-    public void setLabel(String label) {
-      this.label = label;
+    void stepEdge(String id, String source, String target, String input, String output)
+        throws IOException;
+
+    void sentinelEdge(String source, String target) throws IOException;
+
+    void endEdges() throws IOException;
+  }
+
+  /**
+   * The embedded subworkflow run by the step at {@code path}, step IDs (or labels for steps without
+   * an ID) of the enclosing workflows joined by {@code /}.
+   *
+   * @throws IllegalArgumentException if there is no step with an embedded subworkflow at the path
+   */
+  public static Map<String, Object> getSubworkflow(
+      final Map<String, Object> object, final String path) {
+    Map<String, Object> workflow = object;
+    String rest = path;
+    while (true) {
+      final WorkflowGraph graph = WorkflowAdapter.forWorkflow(workflow).graph();
+      // step IDs may contain slashes themselves, try the longest prefix first
+      int end = rest.length();
+      int step = graph.indexOfId(rest);
+      while (step < 0 && (end = rest.lastIndexOf('/', end - 1)) > 0) {
+        step = graph.indexOfId(rest.substring(0, end));
+      }
+      final Map<String, Object> subworkflow = step < 0 ? null : graph.step(step).getSubworkflow();
+      if (subworkflow == null) {
+        throw new IllegalArgumentException("No subworkflow at path " + path);
+      }
+      if (end == rest.length()) {
+        return subworkflow;
+      }
+      workflow = subworkflow;
+      rest = rest.substring(end + 1);
     }
   }
 
-  public static Map<String, Object> getElements(final Map<String, Object> object) {
-    final String wfClass = (String) object.get("class");
-    WorkflowAdapter adapter;
-    if (wfClass == null) {
-      adapter = new NativeWorkflowAdapter(object);
-    } else {
-      adapter = new Format2WorkflowAdapter(object);
-    }
-    final Map<String, Object> elements = new HashMap<>();
-    final List<Object> nodeElements = new ArrayList<>();
-    final List<Object> edgeElements = new ArrayList<>();
-    elements.put("nodes", nodeElements);
-    elements.put("edges", edgeElements);
-    nodeElements.add(createStartNode());
-    nodeElements.add(createEndNode());
-    List<WorkflowAdapter.NormalizedStep> normalizedSteps = adapter.normalizedSteps();
-    // Step definition ID is not really a perfect identifier because it may not exist, using label
-    // as an identifier otherwise
+  private static void emit(
+      final Map<String, Object> object,
+      final ElementSink sink,
+      final String parent,
+      final CytoscapeOptions options,
+      final String expandedAggregate)
+      throws IOException {
+    // Step definition ID is not really a perfect identifier because it may not exist, the graph
+    // uses the label as an identifier otherwise
     // TODO: Need to create another field that actually uniquely identifies the step (but still able
     // to map to input connections and state
-    normalizedSteps.forEach(
-        normalizedStep -> {
-          if (normalizedStep.stepDefinition.get("id") == null) {
-            normalizedStep.stepDefinition.put("id", normalizedStep.label);
-          }
-        });
-    Set<String> endNodeIds =
-        normalizedSteps.stream()
-            .map(normalizedStep -> (normalizedStep.stepDefinition.get("id")).toString())
-            .collect(Collectors.toSet());
-    Set<IdAndLabel> allNodesIdsAndLabels =
-        normalizedSteps.stream()
-            .map(
-                normalizedStep -> {
-                  Map<String, Object> stepDefinition = normalizedStep.stepDefinition;
-                  String id = (stepDefinition.get("id")).toString();
-                  String label =
-                      stepDefinition.get("label") != null
-                          ? stepDefinition.get("label").toString()
-                          : null;
-                  return new IdAndLabel(id, label);
-                })
-            .collect(Collectors.toSet());
-    for (final WorkflowAdapter.NormalizedStep normalizedStep : normalizedSteps) {
-      Map<String, Object> stepDefinition = normalizedStep.stepDefinition;
-      final Map<String, Object> step = stepDefinition;
-      String stepId = (step.get("id")).toString();
-      String stepType = step.get("type") != null ? (String) step.get("type") : "tool";
-      List<String> classes = new ArrayList<>(Collections.singletonList("type_" + stepType));
-      if (stepType.equals("tool") || stepType.equals("subworkflow")) {
-        classes.add("runnable");
-      } else {
-        classes.add("input");
-      }
+    emit(WorkflowAdapter.forWorkflow(object).graph(), sink, parent, options, expandedAggregate);
+  }
 
-      // It's not an end step if there's another step with a state that includes the node
-      Object state = normalizedStep.stepDefinition.get("state");
-      if (state != null) {
-        LinkedHashMap linkedHashMapstate = (LinkedHashMap) state;
-        linkedHashMapstate.keySet().forEach(key -> endNodeIds.remove(key));
-      }
-      String toolId = (String) step.get("tool_id");
-      if (toolId != null && toolId.startsWith(MAIN_TS_PREFIX)) {
-        toolId = toolId.substring(MAIN_TS_PREFIX.length());
+  private static void emit(
+      final WorkflowGraph graph,
+      final ElementSink sink,
+      final String parent,
+      final CytoscapeOptions options,
+      final String expandedAggregate)
+      throws IOException {
+    final boolean nested = parent != null;
+    final String prefix = nested ? parent + "/" : "";
+    final GraphSummary summary = GraphSummary.of(graph, options.getNodeBudget());
+    // the node each step is shown as, the step's own or the aggregate it is collapsed into
+    final String[] nodeIds = new String[graph.size()];
+    for (int i = 0; i < graph.size(); i++) {
+      final int group = summary.group(i);
+      nodeIds[i] =
+          group < 0 ? prefix + graph.id(i) : aggregateId(prefix, graph, summary.members(group));
+    }
+    final int expanded =
+        expandedAggregate == null ? -1 : group(summary, nodeIds, expandedAggregate);
+    if (expanded >= 0) {
+      for (final int member : summary.members(expanded)) {
+        nodeIds[member] = prefix + graph.id(member);
       }
-      String label = normalizedStep.label;
-      if ((label == null || isOrderIndexLabel(label)) && toolId != null) {
-        label = "tool:" + toolId;
+    }
+    final boolean sentinels = !nested && expanded < 0;
+    final LayeredLayout.Positions laidOut = layout(graph, options.getLayout());
+    final WorkflowAnalytics analytics =
+        options.isStepAnalytics() ? WorkflowAnalytics.of(graph) : null;
+
+    if (sentinels) {
+      sink.sentinelNode(START_ID);
+      sink.sentinelNode(END_ID);
+    }
+    for (int i = 0; i < graph.size(); i++) {
+      final int group = summary.group(i);
+      if (expanded >= 0 ? group != expanded : group >= 0 && summary.members(group)[0] != i) {
+        continue;
       }
-      final String repoLink;
-      if (step.containsKey("tool_shed_repository")) {
-        final Map<String, String> repo = (Map<String, String>) step.get("tool_shed_repository");
-        repoLink =
-            "https://"
-                + repo.get("tool_shed")
-                + "/view/"
-                + repo.get("owner")
-                + "/"
-                + repo.get("name")
-                + "/"
-                + repo.get("changeset_revision");
-      } else {
+      final boolean aggregate = group >= 0 && expanded < 0;
+      final WorkflowAdapter.NormalizedStep normalizedStep = graph.step(i);
+      final Map<String, Object> step = normalizedStep.stepDefinition;
+      final String stepType = graph.type(i);
+      String label = displayLabel(graph, i);
+      String toolId = graph.toolId(i);
+      String doc = normalizedStep.doc;
+      String repoLink = toolShedRepositoryLink(step);
+      List<String> classes = STEP_CLASSES.computeIfAbsent(stepType, type -> classes(type, null));
+      if (aggregate) {
+        final int[] members = summary.members(group);
+        classes = AGGREGATE_CLASSES.computeIfAbsent(stepType, type -> classes(type, "aggregate"));
+        label = label + " (" + members.length + " steps)";
+        toolId = commonToolId(graph, members);
+        doc = null;
         repoLink = null;
+      } else if (normalizedStep.getSubworkflow() != null) {
+        classes = COMPOUND_CLASSES.computeIfAbsent(stepType, type -> classes(type, "compound"));
       }
-      final Map<String, Object> nodeData = new HashMap<>();
-      nodeData.put("id", stepId);
-      nodeData.put("label", label);
+      final Map<String, Object> stepPosition = normalizedStep.position;
       // dockstore displays name, docker, type, tool, and run
-      nodeData.put("name", label);
-      // TODO: detect Docker image properly
-      nodeData.put("docker", "TBD");
-      nodeData.put("run", "TBD");
+      sink.stepNode(
+          nodeIds[i],
+          expanded >= 0 ? expandedAggregate : parent,
+          label,
+          toolId,
+          doc,
+          repoLink,
+          stepType,
+          classes,
+          laidOut != null ? laidOut.x(i) : getIntegerValue(stepPosition, "left"),
+          laidOut != null ? laidOut.y(i) : getIntegerValue(stepPosition, "top"),
+          aggregate ? null : analytics,
+          i);
+    }
+    sink.endNodes();
 
-      nodeData.put("tool_id", step.get("tool_id"));
-      nodeData.put("doc", normalizedStep.doc);
-      nodeData.put("repo_link", repoLink);
-      nodeData.put("step_type", stepType);
-      nodeData.put("type", stepType);
-      final Map<String, Object> nodeElement = new HashMap<>();
-      nodeElement.put("group", "nodes");
-      nodeElement.put("data", nodeData);
-      nodeElement.put("classes", classes);
-      nodeElement.put("position", elementPosition(step));
-      nodeElements.add(nodeElement);
+    // by the first step with each ID, as the end steps were a set of step IDs
+    final boolean[] notEnd = new boolean[graph.size()];
+    final EdgeWriter edges =
+        new EdgeWriter(graph, prefix, nodeIds, summary, expanded, notEnd, sink);
+    final Set<String> startedNodeIds = summary.isEmpty() ? null : new HashSet<>();
+    for (int i = 0; i < graph.size(); i++) {
+      final Map<String, Object> step = graph.step(i).stepDefinition;
+      final String stepId = nodeIds[i];
+      // It's not an end step if there's another step with a state that includes the node
+      Object state = step.get("state");
+      if (state != null) {
+        for (final Object key : ((Map<?, ?>) state).keySet()) {
+          final int keyStep = graph.indexOfId((String) key);
+          if (keyStep >= 0) {
+            notEnd[keyStep] = true;
+          }
+        }
+      }
 
       // Create edge from start node if there are:
       // 1. no input connections or empty input connection
       // 2. no inputs
       // 3. no state (questionable)
-      Object inputConnections = stepDefinition.get("input_connections");
-      if (state == null
-          && (normalizedStep.inputs.isEmpty()
-              && (inputConnections == null || inputConnections.toString().equals("{}")))) {
-        edgeElements.add(createEdge(START_ID, stepId));
+      Object inputConnections = step.get("input_connections");
+      if (sentinels
+          && state == null
+          && (graph.inputStart(i) == graph.inputEnd(i)
+              && (inputConnections == null
+                  || inputConnections instanceof Map && ((Map<?, ?>) inputConnections).isEmpty()))
+          && (startedNodeIds == null || startedNodeIds.add(stepId))) {
+        sink.sentinelEdge(START_ID, stepId);
       }
       if (state != null) {
         LinkedHashMap linkedHashMapstate = (LinkedHashMap) state;
         Set<String> keySet = linkedHashMapstate.keySet();
         for (String key : keySet) {
-          createEdges(key, stepId, allNodesIdsAndLabels, edgeElements, endNodeIds, key, stepId);
+          edges.edge(key, graph.indexOf(key), i, key, stepId);
         }
       }
 
-      for (final WorkflowAdapter.Input input : normalizedStep.inputs) {
-        createEdges(
-            input.sourceStepLabel,
-            stepId,
-            allNodesIdsAndLabels,
-            edgeElements,
-            endNodeIds,
-            input.inputName,
-            input.sourceOutputName);
+      for (int edge = graph.inputStart(i); edge < graph.inputEnd(i); edge++) {
+        edges.edge(
+            graph.edgeSourceReference(edge),
+            graph.edgeSource(edge),
+            i,
+            graph.edgeInputName(edge),
+            graph.edgeOutputName(edge));
       }
     }
     // Create edges for end nodes to direct to the real end node
-    endNodeIds.forEach(endNodeId -> edgeElements.add(createEdge(endNodeId, END_ID)));
-    return elements;
+    if (sentinels) {
+      final Set<String> endNodes = summary.isEmpty() ? null : new HashSet<>();
+      for (int i = 0; i < graph.size(); i++) {
+        if (graph.indexOfId(graph.id(i)) == i
+            && !notEnd[i]
+            && (endNodes == null || endNodes.add(nodeIds[i]))) {
+          sink.sentinelEdge(nodeIds[i], END_ID);
+        }
+      }
+    }
+    sink.endEdges();
+  }
+
+  private static List<String> classes(final String stepType, final String extraClass) {
+    final List<String> classes = new ArrayList<>(3);
+    classes.add("type_" + stepType);
+    classes.add(stepType.equals("tool") || stepType.equals("subworkflow") ? "runnable" : "input");
+    if (extraClass != null) {
+      classes.add(extraClass);
+    }
+    return Collections.unmodifiableList(classes);
+  }
+
+  // the shape of a serialized CytoscapeDAG.Node
+  private static Map<String, Object> sentinelNodeElement(final String id) {
+    final Map<String, Object> nodeData = new LinkedHashMap<>();
+    nodeData.put("name", id);
+    nodeData.put("run", null);
+    nodeData.put("id", id);
+    nodeData.put("docker", null);
+    return Collections.singletonMap("data", Collections.unmodifiableMap(nodeData));
+  }
+
+  private static String aggregateId(
+      final String prefix, final WorkflowGraph graph, final int[] members) {
+    return prefix + "aggregate__" + graph.id(members[0]);
+  }
+
+  private static int group(
+      final GraphSummary summary, final String[] nodeIds, final String aggregateId) {
+    for (int group = 0; group < summary.groupCount(); group++) {
+      if (nodeIds[summary.members(group)[0]].equals(aggregateId)) {
+        return group;
+      }
+    }
+    throw new IllegalArgumentException("No aggregate node " + aggregateId);
+  }
+
+  private static String commonToolId(final WorkflowGraph graph, final int[] members) {
+    final String toolId = graph.toolId(members[0]);
+    for (final int member : members) {
+      if (!Objects.equals(toolId, graph.toolId(member))) {
+        return null;
+      }
+    }
+    return toolId;
+  }
+
+  // Diagonal made up positions are no use for a graph of any size, authored ones are kept. Null if
+  // every step has a position.
+  private static LayeredLayout.Positions layout(
+      final WorkflowGraph graph, final LayeredLayout layout) {
+    final boolean[] known = new boolean[graph.size()];
+    int knownCount = 0;
+    for (int i = 0; i < graph.size(); i++) {
+      known[i] = graph.step(i).stepDefinition.containsKey("position");
+      if (known[i]) {
+        knownCount++;
+      }
+    }
+    if (knownCount == graph.size()) {
+      return null;
+    } else if (knownCount == 0) {
+      return layout.layout(graph);
+    }
+    final long[] x = new long[graph.size()];
+    final long[] y = new long[graph.size()];
+    for (int i = 0; i < graph.size(); i++) {
+      if (known[i]) {
+        x[i] = getIntegerValue(graph.step(i).position, "left");
+        y[i] = getIntegerValue(graph.step(i).position, "top");
+      }
+    }
+    return layout.placeMissing(graph, x, y, known);
   }
 
-  private static void createEdges(
-      String sourceStepLabel,
-      String stepId,
-      Set<IdAndLabel> allNodesIdsAndLabels,
-      final List<Object> edgeElements,
-      Set<String> endNodeIds,
-      String inputName,
-      String outputName) {
-    final String edgeId = stepId + "__to__" + sourceStepLabel;
-    final Map<String, Object> edgeData = new HashMap<>();
-    edgeData.put("id", edgeId);
-    // Look up what the step ID is based on sourceStepLabel which is either the step ID itself
-    // or the step label
-    Optional<IdAndLabel> sourceId =
-        allNodesIdsAndLabels.stream()
-            .filter(
-                partialStep -> {
-                  boolean isLabel = sourceStepLabel.equals(partialStep.getLabel());
-                  boolean isId = sourceStepLabel.equals(partialStep.getId());
-                  return isLabel || isId;
-                })
-            .findFirst();
-    if (sourceId.isPresent()) {
-      edgeData.put("source", sourceId.get().id);
+  /**
+   * Emits connections between the nodes steps are shown as. Connections inside an aggregate are
+   * dropped and the ones into or out of it are emitted once per pair of nodes.
+   */
+  private static class EdgeWriter {
+    private final WorkflowGraph graph;
+    private final String prefix;
+    private final String[] nodeIds;
+    private final GraphSummary summary;
+    private final int expanded;
+    private final boolean[] notEnd;
+    private final ElementSink sink;
+    private final Set<String> aggregateEdgeIds;
+
+    EdgeWriter(
+        final WorkflowGraph graph,
+        final String prefix,
+        final String[] nodeIds,
+        final GraphSummary summary,
+        final int expanded,
+        final boolean[] notEnd,
+        final ElementSink sink) {
+      this.graph = graph;
+      this.prefix = prefix;
+      this.nodeIds = nodeIds;
+      this.summary = summary;
+      this.expanded = expanded;
+      this.notEnd = notEnd;
+      this.sink = sink;
+      // only connections of collapsed steps are deduplicated
+      this.aggregateEdgeIds = summary.isEmpty() ? null : new HashSet<>();
+    }
+
+    void edge(
+        final String sourceStepLabel,
+        final int source,
+        final int target,
+        final String inputName,
+        final String outputName)
+        throws IOException {
+      // sourceStepLabel is either the step ID itself or the step label, resolved by the graph
+      if (source < 0) {
+        String errorMessage =
+            String.format("Could not find input \"%s\" from the workflow steps.", sourceStepLabel);
+        LOG.error(errorMessage);
+        return;
+      }
       // Any node that's a source of an edge is not an end node
-      endNodeIds.remove(sourceId.get().id);
-      edgeData.put("target", stepId);
-      edgeData.put("input", inputName);
-      edgeData.put("output", outputName);
-      final Map<String, Object> edgeElement = new HashMap<>();
+      notEnd[graph.indexOfId(graph.id(source))] = true;
+      if (expanded >= 0 && summary.group(source) != expanded && summary.group(target) != expanded) {
+        return;
+      }
+      final String sourceId = nodeIds[source];
+      final String targetId = nodeIds[target];
+      if (!collapsed(source) && !collapsed(target)) {
+        sink.stepEdge(
+            targetId + "__to__" + prefix + sourceStepLabel,
+            sourceId,
+            targetId,
+            inputName,
+            outputName);
+      } else if (!sourceId.equals(targetId)) {
+        final String id = targetId + "__to__" + sourceId;
+        if (aggregateEdgeIds.add(id)) {
+          sink.stepEdge(id, sourceId, targetId, inputName, outputName);
+        }
+      }
+    }
+
+    private boolean collapsed(final int step) {
+      return summary.group(step) >= 0 && summary.group(step) != expanded;
+    }
+  }
+
+  /** Builds the elements as maps, the key order of each map is the order the JSON sink uses. */
+  private static class MapSink implements ElementSink {
+    private final Map<String, Object> elements = new LinkedHashMap<>();
+    private final List<Object> nodeElements = new ArrayList<>();
+    private final List<Object> edgeElements = new ArrayList<>();
+
+    MapSink() {
+      elements.put("nodes", nodeElements);
+      elements.put("edges", edgeElements);
+    }
+
+    @Override
+    public void sentinelNode(final String id) {
+      nodeElements.add(id.equals(START_ID) ? START_NODE : END_NODE);
+    }
+
+    @Override
+    public void stepNode(
+        final String id,
+        final String parent,
+        final String label,
+        final String toolId,
+        final String doc,
+        final String repoLink,
+        final String stepType,
+        final List<String> classes,
+        final long x,
+        final long y,
+        final WorkflowAnalytics analytics,
+        final int step) {
+      // sized for all keys, the default capacity resizes once analytics are added
+      final Map<String, Object> nodeData = new LinkedHashMap<>(32);
+      nodeData.put("id", id);
+      if (parent != null) {
+        nodeData.put("parent", parent);
+      }
+      nodeData.put("label", label);
+      nodeData.put("name", label);
+      nodeData.put("docker", NOT_DETECTED);
+      nodeData.put("run", NOT_DETECTED);
+      nodeData.put("tool_id", toolId);
+      nodeData.put("doc", doc);
+      nodeData.put("repo_link", repoLink);
+      nodeData.put("step_type", stepType);
+      nodeData.put("type", stepType);
+      if (analytics != null) {
+        nodeData.put("depth", analytics.depth(step));
+        nodeData.put("fan_in", analytics.fanIn(step));
+        nodeData.put("fan_out", analytics.fanOut(step));
+      }
+      final Map<String, Long> position = new LinkedHashMap<>();
+      position.put("x", x);
+      position.put("y", y);
+      final Map<String, Object> nodeElement = new LinkedHashMap<>();
+      nodeElement.put("group", "nodes");
+      nodeElement.put("data", nodeData);
+      nodeElement.put("classes", classes);
+      nodeElement.put("position", position);
+      nodeElements.add(nodeElement);
+    }
+
+    @Override
+    public void endNodes() {}
+
+    @Override
+    public void stepEdge(
+        final String id,
+        final String source,
+        final String target,
+        final String input,
+        final String output) {
+      final Map<String, Object> edgeData = new LinkedHashMap<>();
+      edgeData.put("id", id);
+      edgeData.put("source", source);
+      edgeData.put("target", target);
+      edgeData.put("input", input);
+      edgeData.put("output", output);
+      final Map<String, Object> edgeElement = new LinkedHashMap<>();
       edgeElement.put("group", "edges");
       edgeElement.put("data", edgeData);
       edgeElements.add(edgeElement);
-    } else {
-      String errorMessage =
-          String.format("Could not find input \"%s\" from the workflow steps.", sourceStepLabel);
-      LOG.error(errorMessage);
     }
+
+    @Override
+    public void sentinelEdge(final String source, final String target) {
+      // the shape of a serialized CytoscapeDAG.Edge
+      final Map<String, Object> edgeData = new LinkedHashMap<>();
+      edgeData.put("id", source + "__to__" + target);
+      edgeData.put("source", source);
+      edgeData.put("target", target);
+      final Map<String, Object> edgeElement = new LinkedHashMap<>();
+      edgeElement.put("data", edgeData);
+      edgeElements.add(edgeElement);
+    }
+
+    @Override
+    public void endEdges() {}
+  }
+
+  /** Writes the same structure as {@link MapSink} builds. */
+  private static class JsonSink implements ElementSink {
+    private final JsonGenerator generator;
+
+    JsonSink(final JsonGenerator generator) throws IOException {
+      this.generator = generator;
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("nodes");
+    }
+
+    @Override
+    public void sentinelNode(final String id) throws IOException {
+      generator.writeStartObject();
+      generator.writeObjectFieldStart("data");
+      generator.writeStringField("name", id);
+      generator.writeNullField("run");
+      generator.writeStringField("id", id);
+      generator.writeNullField("docker");
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+
+    @Override
+    public void stepNode(
+        final String id,
+        final String parent,
+        final String label,
+        final String toolId,
+        final String doc,
+        final String repoLink,
+        final String stepType,
+        final List<String> classes,
+        final long x,
+        final long y,
+        final WorkflowAnalytics analytics,
+        final int step)
+        throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("group", "nodes");
+      generator.writeObjectFieldStart("data");
+      generator.writeStringField("id", id);
+      if (parent != null) {
+        generator.writeStringField("parent", parent);
+      }
+      generator.writeStringField("label", label);
+      generator.writeStringField("name", label);
+      generator.writeStringField("docker", NOT_DETECTED);
+      generator.writeStringField("run", NOT_DETECTED);
+      generator.writeStringField("tool_id", toolId);
+      generator.writeStringField("doc", doc);
+      generator.writeStringField("repo_link", repoLink);
+      generator.writeStringField("step_type", stepType);
+      generator.writeStringField("type", stepType);
+      if (analytics != null) {
+        generator.writeNumberField("depth", analytics.depth(step));
+        generator.writeNumberField("fan_in", analytics.fanIn(step));
+        generator.writeNumberField("fan_out", analytics.fanOut(step));
+      }
+      generator.writeEndObject();
+      generator.writeArrayFieldStart("classes");
+      for (final String nodeClass : classes) {
+        generator.writeString(nodeClass);
+      }
+      generator.writeEndArray();
+      generator.writeObjectFieldStart("position");
+      generator.writeNumberField("x", x);
+      generator.writeNumberField("y", y);
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+
+    @Override
+    public void endNodes() throws IOException {
+      generator.writeEndArray();
+      generator.writeArrayFieldStart("edges");
+    }
+
+    @Override
+    public void stepEdge(
+        final String id,
+        final String source,
+        final String target,
+        final String input,
+        final String output)
+        throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("group", "edges");
+      generator.writeObjectFieldStart("data");
+      generator.writeStringField("id", id);
+      generator.writeStringField("source", source);
+      generator.writeStringField("target", target);
+      generator.writeStringField("input", input);
+      generator.writeStringField("output", output);
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+
+    @Override
+    public void sentinelEdge(final String source, final String target) throws IOException {
+      generator.writeStartObject();
+      generator.writeObjectFieldStart("data");
+      generator.writeStringField("id", source + "__to__" + target);
+      generator.writeStringField("source", source);
+      generator.writeStringField("target", target);
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+
+    @Override
+    public void endEdges() throws IOException {
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
+  /** Label shown for a step, unlabelled tool steps are named after their (short) tool ID. */
+  public static String displayLabel(final WorkflowAdapter.NormalizedStep normalizedStep) {
+    return displayLabel(normalizedStep.label, WorkflowGraph.toolId(normalizedStep.stepDefinition));
+  }
+
+  public static String displayLabel(final WorkflowGraph graph, final int step) {
+    return displayLabel(graph.label(step), graph.toolId(step));
+  }
+
+  private static String displayLabel(String label, String toolId) {
+    if (toolId != null && toolId.startsWith(MAIN_TS_PREFIX)) {
+      toolId = toolId.substring(MAIN_TS_PREFIX.length());
+    }
+    if ((label == null || isOrderIndexLabel(label)) && toolId != null) {
+      label = "tool:" + toolId;
+    }
+    return label;
+  }
+
+  public static String toolShedRepositoryLink(final Map<String, Object> step) {
+    if (!step.containsKey("tool_shed_repository")) {
+      return null;
+    }
+    final Map<String, String> repo = (Map<String, String>) step.get("tool_shed_repository");
+    return "https://"
+        + repo.get("tool_shed")
+        + "/view/"
+        + repo.get("owner")
+        + "/"
+        + repo.get("name")
+        + "/"
+        + repo.get("changeset_revision");
   }
 
   static boolean isOrderIndexLabel(final String label) {
+    // most labels aren't numbers, check before paying for a NumberFormatException per step
+    if (label.isEmpty() || !(Character.isDigit(label.charAt(0)) || label.charAt(0) == '-')) {
+      return false;
+    }
     try {
       Integer.parseInt(label);
       return true;
@@ -242,26 +800,7 @@ public class Cytoscape {
     }
   }
 
-  private static CytoscapeDAG.Edge createEdge(String source, String target) {
-    String id = source + "__to__" + target;
-    CytoscapeDAG.Edge edge = new CytoscapeDAG.Edge();
-    CytoscapeDAG.Edge.EdgeData edgeData = new CytoscapeDAG.Edge.EdgeData();
-    edgeData.setId(id);
-    edgeData.setSource(source);
-    edgeData.setTarget(target);
-    edge.setData(edgeData);
-    return edge;
-  }
-
-  private static Map<String, Long> elementPosition(final Map<String, Object> step) {
-    Map<String, Object> stepPosition = (Map<String, Object>) step.get("position");
-    Map<String, Long> elementPosition = new HashMap();
-    elementPosition.put("x", getIntegerValue(stepPosition, "left"));
-    elementPosition.put("y", getIntegerValue(stepPosition, "top"));
-    return elementPosition;
-  }
-
-  private static Long getIntegerValue(final Map<String, Object> fromMap, final String key) {
+  private static long getIntegerValue(final Map<String, Object> fromMap, final String key) {
     final Object value = fromMap.get(key);
     if (value instanceof Float || value instanceof Double) {
       return (long) Math.floor((double) value);
@@ -271,21 +810,4 @@ public class Cytoscape {
       return (long) value;
     }
   }
-
-  private static Map<String, Object> createStartNode() {
-    return createStartOrEndNode(START_ID);
-  }
-
-  private static Map<String, Object> createEndNode() {
-    return createStartOrEndNode(END_ID);
-  }
-
-  private static Map<String, Object> createStartOrEndNode(String id) {
-    CytoscapeDAG.Node.NodeData nodeData = new CytoscapeDAG.Node.NodeData();
-    nodeData.setId(id);
-    nodeData.setName(id);
-    CytoscapeDAG.Node node = new CytoscapeDAG.Node();
-    node.setData(nodeData);
-    return objectMapper.convertValue(node, Map.class);
-  }
 }
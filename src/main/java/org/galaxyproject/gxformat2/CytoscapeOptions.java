@@ -0,0 +1,56 @@
+package org.galaxyproject.gxformat2;
+
+/**
+ * How {@link Cytoscape} builds the elements of a workflow. Immutable, {@code with} methods copy.
+ */
+public final class CytoscapeOptions {
+  public static final CytoscapeOptions DEFAULT =
+      new CytoscapeOptions(LayeredLayout.DEFAULT, 0, false);
+
+  private final LayeredLayout layout;
+  private final int nodeBudget;
+  private final boolean stepAnalytics;
+
+  private CytoscapeOptions(
+      final LayeredLayout layout, final int nodeBudget, final boolean stepAnalytics) {
+    this.layout = layout;
+    this.nodeBudget = nodeBudget;
+    this.stepAnalytics = stepAnalytics;
+  }
+
+  /** Layout placing the steps of workflows where any step has no position. */
+  public LayeredLayout getLayout() {
+    return layout;
+  }
+
+  public CytoscapeOptions withLayout(final LayeredLayout layout) {
+    return new CytoscapeOptions(layout, nodeBudget, stepAnalytics);
+  }
+
+  /**
+   * Number of step nodes above which fan-out groups and linear chains are collapsed into aggregate
+   * nodes, 0 to always show every step.
+   */
+  public int getNodeBudget() {
+    return nodeBudget;
+  }
+
+  public CytoscapeOptions withNodeBudget(final int nodeBudget) {
+    if (nodeBudget < 0) {
+      throw new IllegalArgumentException("nodeBudget must not be negative");
+    }
+    return new CytoscapeOptions(layout, nodeBudget, stepAnalytics);
+  }
+
+  /**
+   * Whether step nodes get their {@code depth}, {@code fan_in} and {@code fan_out} from {@link
+   * WorkflowAnalytics} in their data.
+   */
+  public boolean isStepAnalytics() {
+    return stepAnalytics;
+  }
+
+  public CytoscapeOptions withStepAnalytics(final boolean stepAnalytics) {
+    return new CytoscapeOptions(layout, nodeBudget, stepAnalytics);
+  }
+}
@@ -0,0 +1,168 @@
+package org.galaxyproject.gxformat2;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.representer.Representer;
+
+/**
+ * Single entry point for parsing workflow documents.
+ *
+ * <p>SnakeYAML {@link Yaml} instances are not thread safe and are comparatively expensive to build
+ * (resolvers, constructors and their regular expressions), so every thread reuses its own instance.
+ * All instances share the same {@link LoaderOptions}, which must not be modified after startup.
+ *
+ * <p>Documents whose first non-whitespace character opens a JSON object or array (native .ga
+ * workflows) are read with Jackson's streaming parser instead, which is considerably faster and
+ * leaner than SnakeYAML on large JSON. Jackson produces the same map, list and scalar types, and
+ * anything it rejects is handed to SnakeYAML so YAML flow documents and error reporting are
+ * unaffected.
+ *
+ * <p>{@link #load(String, SourcePositions)} also records the line and column of every map and list
+ * and of their keys and elements, from Jackson token locations or SnakeYAML node marks, so nothing
+ * needs to parse the document again to locate a problem in it.
+ */
+public final class DocumentParser {
+  private static final LoaderOptions LOADER_OPTIONS = new LoaderOptions();
+  private static final ThreadLocal<Yaml> YAML =
+      ThreadLocal.withInitial(() -> new Yaml(LOADER_OPTIONS));
+  private static final ThreadLocal<PositionRecorder> POSITION_RECORDER =
+      ThreadLocal.withInitial(PositionRecorder::new);
+  private static final JsonDocumentReader JSON =
+      new JsonDocumentReader(LOADER_OPTIONS.getNestingDepthLimit());
+
+  private DocumentParser() {}
+
+  /** Parse a document, equivalent to {@code new Yaml().load(content)}. */
+  public static <T> T load(final String content) {
+    final Object json = readJson(content);
+    if (json != null) {
+      return (T) json;
+    }
+    return YAML.get().load(content);
+  }
+
+  /** Parse a document like {@link #load(String)}, recording where its parts are in positions. */
+  public static <T> T load(final String content, final SourcePositions positions) {
+    positions.clear();
+    if (content != null && JsonDocumentReader.looksLikeJson(content)) {
+      try {
+        return (T) JSON.read(content, positions);
+      } catch (IOException e) {
+        positions.clear();
+      }
+    }
+    return (T) POSITION_RECORDER.get().load(content, positions);
+  }
+
+  /**
+   * Parse a document into the given type, equivalent to {@code new Yaml().loadAs(content, type)}.
+   */
+  public static <T> T loadAs(final String content, final Class<T> type) {
+    final Object json = readJson(content);
+    if (type.isInstance(json)) {
+      return type.cast(json);
+    }
+    return YAML.get().loadAs(content, type);
+  }
+
+  static LoaderOptions loaderOptions() {
+    return LOADER_OPTIONS;
+  }
+
+  static JsonDocumentReader jsonReader() {
+    return JSON;
+  }
+
+  /** Lazily parsed SnakeYAML events of a document. */
+  static Iterable<Event> parseEvents(final String content) {
+    return YAML.get().parse(new StringReader(content));
+  }
+
+  // null if the content isn't a JSON object or array
+  private static Object readJson(final String content) {
+    if (content == null || !JsonDocumentReader.looksLikeJson(content)) {
+      return null;
+    }
+    try {
+      return JSON.read(content);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  // Remembers the object built for each node, to walk the node tree alongside them afterwards.
+  private static final class PositionRecorder extends Constructor {
+    private final Yaml yaml;
+    private final Map<Node, Object> constructed = new IdentityHashMap<>();
+    private Node root;
+
+    PositionRecorder() {
+      super(LOADER_OPTIONS);
+      final DumperOptions dumperOptions = new DumperOptions();
+      this.yaml = new Yaml(this, new Representer(dumperOptions), dumperOptions, LOADER_OPTIONS);
+    }
+
+    Object load(final String content, final SourcePositions positions) {
+      try {
+        final Object value = yaml.load(content);
+        if (root != null) {
+          record(root, "", positions);
+        }
+        return value;
+      } finally {
+        constructed.clear();
+        root = null;
+      }
+    }
+
+    @Override
+    protected Object constructObject(final Node node) {
+      if (root == null) {
+        root = node;
+      }
+      final Object value = super.constructObject(node);
+      constructed.putIfAbsent(node, value);
+      return value;
+    }
+
+    private void record(final Node node, final String pointer, final SourcePositions positions) {
+      final Object value = constructed.get(node);
+      if (!(value instanceof Map || value instanceof List)
+          || !positions.add(value, pointer, mark(node.getStartMark()))) {
+        return;
+      }
+      if (node instanceof MappingNode) {
+        // like the value, a repeated key keeps its last position
+        for (final NodeTuple tuple : ((MappingNode) node).getValue()) {
+          final Object key = constructed.get(tuple.getKeyNode());
+          positions.addChild(value, key, mark(tuple.getKeyNode().getStartMark()));
+          record(tuple.getValueNode(), SourcePositions.child(pointer, key), positions);
+        }
+      } else if (node instanceof SequenceNode) {
+        final List<Node> items = ((SequenceNode) node).getValue();
+        for (int i = 0; i < items.size(); i++) {
+          positions.addChild(value, i, mark(items.get(i).getStartMark()));
+          record(items.get(i), SourcePositions.child(pointer, i), positions);
+        }
+      }
+    }
+
+    // SnakeYAML marks are 0-based
+    private static long mark(final Mark mark) {
+      return SourcePositions.mark(mark.getLine() + 1, mark.getColumn() + 1);
+    }
+  }
+}
@@ -0,0 +1,286 @@
+package org.galaxyproject.gxformat2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Reads selected top-level keys of a document without materializing the rest of it.
+ *
+ * <p>The document is streamed as SnakeYAML events (or Jackson tokens for JSON). Values of other
+ * keys are skipped without being built and reading stops as soon as every requested key has been
+ * seen, so pulling e.g. the name and annotation out of a large .ga export never builds its steps.
+ * Values of requested keys are built exactly as {@link DocumentParser} would build them.
+ */
+public final class DocumentProjection {
+  private static final Resolver RESOLVER = new Resolver();
+  private static final ThreadLocal<NodeConstructor> CONSTRUCTOR =
+      ThreadLocal.withInitial(NodeConstructor::new);
+
+  private DocumentProjection() {}
+
+  /**
+   * Read the given top-level keys.
+   *
+   * @return the keys that were found mapped to their values in document order, or null if the
+   *     document is not a mapping
+   * @throws YAMLException if the document is malformed before all keys have been seen
+   */
+  public static Map<String, Object> readTopLevel(final String content, final Set<String> keys) {
+    final Scan scan = scan(content, keys, keys.size());
+    if (scan.error != null) {
+      throw scan.error;
+    }
+    return scan.mapping ? scan.found : null;
+  }
+
+  /** Result of scanning the top-level keys of a document, possibly cut short by an error. */
+  static final class Scan {
+    final Map<String, Object> found = new LinkedHashMap<>();
+    boolean mapping = true;
+    YAMLException error;
+  }
+
+  /**
+   * Scan top-level keys until {@code stopAfter} of the requested keys have been seen. Malformed
+   * (e.g. truncated) documents don't throw, the keys seen before the problem are kept and the
+   * problem is recorded in {@link Scan#error}.
+   */
+  static Scan scan(final String content, final Set<String> keys, final int stopAfter) {
+    if (JsonDocumentReader.looksLikeJson(content)) {
+      final Scan scan = new Scan();
+      try {
+        readJson(content, keys, stopAfter, scan);
+        return scan;
+      } catch (IOException e) {
+        // not plain JSON after all, let SnakeYAML deal with it
+      }
+    }
+    final Scan scan = new Scan();
+    try {
+      readYaml(content, keys, stopAfter, scan);
+    } catch (YAMLException e) {
+      scan.error = e;
+    }
+    return scan;
+  }
+
+  private static void readJson(
+      final String content, final Set<String> keys, final int stopAfter, final Scan scan)
+      throws IOException {
+    final JsonDocumentReader reader = DocumentParser.jsonReader();
+    try (JsonParser parser = reader.createParser(content)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        // a top-level array, SnakeYAML would not give us a mapping either
+        scan.mapping = false;
+        return;
+      }
+      final Map<String, Object> found = scan.found;
+      while (found.size() < stopAfter && parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String key = parser.getCurrentName();
+        final JsonToken valueToken = parser.nextToken();
+        if (keys.contains(key)) {
+          found.put(key, reader.readValue(parser, valueToken));
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private static void readYaml(
+      final String content, final Set<String> keys, final int stopAfter, final Scan scan) {
+    final Iterator<Event> events = DocumentParser.parseEvents(content).iterator();
+    Event event = next(events);
+    while (event.is(Event.ID.StreamStart) || event.is(Event.ID.DocumentStart)) {
+      event = next(events);
+    }
+    if (!event.is(Event.ID.MappingStart)) {
+      scan.mapping = false;
+      return;
+    }
+    final Map<String, Object> found = scan.found;
+    while (found.size() < stopAfter) {
+      final Event keyEvent = next(events);
+      if (keyEvent.is(Event.ID.MappingEnd)) {
+        break;
+      }
+      final String key = stringKey(keyEvent, events);
+      final Event valueEvent = next(events);
+      if (key != null && keys.contains(key)) {
+        final Node node = compose(valueEvent, events, new HashMap<>());
+        if (node == null) {
+          // alias to an anchor in a part of the document we skipped
+          final Map<String, Object> projected = projectParsed(DocumentParser.load(content), keys);
+          found.clear();
+          if (projected == null) {
+            scan.mapping = false;
+          } else {
+            found.putAll(projected);
+          }
+          return;
+        }
+        found.put(key, CONSTRUCTOR.get().construct(node));
+      } else {
+        skip(valueEvent, events);
+      }
+    }
+  }
+
+  private static Map<String, Object> projectParsed(final Object document, final Set<String> keys) {
+    if (!(document instanceof Map)) {
+      return null;
+    }
+    final Map<String, Object> found = new LinkedHashMap<>();
+    for (final Map.Entry<String, Object> entry : ((Map<String, Object>) document).entrySet()) {
+      if (keys.contains(entry.getKey())) {
+        found.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return found;
+  }
+
+  private static Event next(final Iterator<Event> events) {
+    if (!events.hasNext()) {
+      throw new YAMLException("unexpected end of document");
+    }
+    return events.next();
+  }
+
+  // Plain string keys only, anything else can't be one of the requested keys.
+  private static String stringKey(final Event keyEvent, final Iterator<Event> events) {
+    if (keyEvent.is(Event.ID.Scalar)) {
+      final ScalarEvent scalar = (ScalarEvent) keyEvent;
+      return Tag.STR.equals(scalarTag(scalar)) ? scalar.getValue() : null;
+    }
+    skip(keyEvent, events);
+    return null;
+  }
+
+  private static void skip(final Event start, final Iterator<Event> events) {
+    if (!(start.is(Event.ID.MappingStart) || start.is(Event.ID.SequenceStart))) {
+      return;
+    }
+    int depth = 1;
+    while (depth > 0) {
+      final Event event = next(events);
+      if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+        depth++;
+      } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+        depth--;
+      }
+    }
+  }
+
+  // Build the node tree for one value, null if it refers to an anchor outside of the value.
+  private static Node compose(
+      final Event event, final Iterator<Event> events, final Map<String, Node> anchors) {
+    final Node node;
+    if (event.is(Event.ID.Alias)) {
+      return anchors.get(((AliasEvent) event).getAnchor());
+    } else if (event.is(Event.ID.Scalar)) {
+      final ScalarEvent scalar = (ScalarEvent) event;
+      node =
+          new ScalarNode(
+              scalarTag(scalar),
+              scalar.getValue(),
+              scalar.getStartMark(),
+              scalar.getEndMark(),
+              scalar.getScalarStyle());
+    } else if (event.is(Event.ID.SequenceStart)) {
+      final CollectionStartEvent start = (CollectionStartEvent) event;
+      final List<Node> items = new ArrayList<>();
+      Event itemEvent;
+      while (!(itemEvent = next(events)).is(Event.ID.SequenceEnd)) {
+        final Node item = compose(itemEvent, events, anchors);
+        if (item == null) {
+          return null;
+        }
+        items.add(item);
+      }
+      node =
+          new SequenceNode(
+              collectionTag(start, NodeId.sequence),
+              true,
+              items,
+              start.getStartMark(),
+              itemEvent.getEndMark(),
+              start.getFlowStyle());
+    } else {
+      final CollectionStartEvent start = (CollectionStartEvent) event;
+      final List<NodeTuple> tuples = new ArrayList<>();
+      Event keyEvent;
+      while (!(keyEvent = next(events)).is(Event.ID.MappingEnd)) {
+        final Node key = compose(keyEvent, events, anchors);
+        final Node value = key == null ? null : compose(next(events), events, anchors);
+        if (value == null) {
+          return null;
+        }
+        tuples.add(new NodeTuple(key, value));
+      }
+      node =
+          new MappingNode(
+              collectionTag(start, NodeId.mapping),
+              true,
+              tuples,
+              start.getStartMark(),
+              keyEvent.getEndMark(),
+              start.getFlowStyle());
+    }
+    final String anchor = ((NodeEvent) event).getAnchor();
+    if (anchor != null) {
+      anchors.put(anchor, node);
+    }
+    return node;
+  }
+
+  private static Tag scalarTag(final ScalarEvent scalar) {
+    final String tag = scalar.getTag();
+    if (tag == null || tag.equals("!")) {
+      return RESOLVER.resolve(
+          NodeId.scalar, scalar.getValue(), scalar.getImplicit().canOmitTagInPlainScalar());
+    }
+    return new Tag(tag);
+  }
+
+  private static Tag collectionTag(final CollectionStartEvent start, final NodeId nodeId) {
+    final String tag = start.getTag();
+    if (tag == null || tag.equals("!")) {
+      return RESOLVER.resolve(nodeId, null, start.getImplicit());
+    }
+    return new Tag(tag);
+  }
+
+  /** Builds values the same way the default {@code Yaml} constructor does. */
+  private static class NodeConstructor extends Constructor {
+    NodeConstructor() {
+      super(DocumentParser.loaderOptions());
+    }
+
+    Object construct(final Node node) {
+      return constructDocument(node);
+    }
+  }
+}
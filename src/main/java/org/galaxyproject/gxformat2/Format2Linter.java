@@ -6,13 +6,12 @@ import org.galaxyproject.gxformat2.v19_09.utils.ValidationException;
 
 public class Format2Linter implements GalaxyWorkflowLinter {
   public void lint(final LintContext lintContext, final Map<String, Object> workflow) {
-    try {
-      RootLoader.loadDocument(workflow);
-    } catch (ValidationException e) {
-      lintContext.error("Validation failed " + e.toString());
-    }
+    loadDocument(lintContext, workflow);
     final Map<String, Object> steps = LintUtils.stepMap(lintContext, workflow);
     for (Map.Entry<String, Object> stepEntry : steps.entrySet()) {
+      if (lintContext.isBudgetExhausted()) {
+        return;
+      }
       if (!(stepEntry.getValue() instanceof Map)) {
         continue;
       }
@@ -20,4 +19,13 @@ public class Format2Linter implements GalaxyWorkflowLinter {
       LintUtils.lintStepErrors(lintContext, step);
     }
   }
+
+  private static void loadDocument(
+      final LintContext lintContext, final Map<String, Object> workflow) {
+    try {
+      RootLoader.loadDocument(workflow);
+    } catch (ValidationException e) {
+      lintContext.error(LintRule.SCHEMA_VALIDATION, workflow, null, e);
+    }
+  }
 }
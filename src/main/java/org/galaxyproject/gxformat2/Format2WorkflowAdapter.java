@@ -2,6 +2,7 @@ package org.galaxyproject.gxformat2;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,8 +21,8 @@ public class Format2WorkflowAdapter implements WorkflowAdapter {
     int orderIndex = 0;
     for (Map<String, Object> stepDef : steps) {
       final NormalizedStep step = new NormalizedStep();
-      ensurePosition(stepDef, orderIndex);
       step.stepDefinition = stepDef;
+      step.position = WorkflowAdapter.position(stepDef, orderIndex);
       step.inputs = new ArrayList<Input>();
       Map<String, Object> in = new HashMap();
       if (stepDef.containsKey("in")) {
@@ -101,7 +102,8 @@ public class Format2WorkflowAdapter implements WorkflowAdapter {
     for (final Map.Entry<String, Object> entry : stepsMap.entrySet()) {
       Map<String, Object> step;
       if (entry.getValue() instanceof Map) {
-        step = (Map<String, Object>) entry.getValue();
+        // copy before adding the key, the workflow itself is left untouched
+        step = new LinkedHashMap<>((Map<String, Object>) entry.getValue());
       } else {
         step = new HashMap();
         step.put("type", entry.getValue());
@@ -0,0 +1,137 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups of steps of a {@link WorkflowGraph} shown as one aggregate node when a workflow has more
+ * steps than a node budget.
+ *
+ * <p>First steps running the same tool on exactly the same source steps (fan-out) are grouped, then
+ * linear chains, runs of steps each being the only source of the next and the next its only target.
+ * Groups are taken in step order only until the budget is met, so the result depends only on the
+ * graph and the budget.
+ */
+final class GraphSummary {
+  private final int[] group;
+  private final List<int[]> groups = new ArrayList<>();
+
+  private GraphSummary(final int size) {
+    group = new int[size];
+    Arrays.fill(group, -1);
+  }
+
+  /** The summary of the graph, with no groups if it fits the budget (0 for no budget). */
+  static GraphSummary of(final WorkflowGraph graph, final int nodeBudget) {
+    final GraphSummary summary = new GraphSummary(graph.size());
+    if (nodeBudget <= 0 || graph.size() <= nodeBudget) {
+      return summary;
+    }
+    final int[][] sources = new int[graph.size()][];
+    final int[][] targets = new int[graph.size()][];
+    for (int step = 0; step < graph.size(); step++) {
+      final int[] stepSources = new int[graph.inputEnd(step) - graph.inputStart(step)];
+      int count = 0;
+      for (int edge = graph.inputStart(step); edge < graph.inputEnd(step); edge++) {
+        stepSources[count++] = graph.edgeSource(edge);
+      }
+      sources[step] = distinct(stepSources, count, step);
+      final int[] stepTargets = new int[graph.outputCount(step)];
+      for (int i = 0; i < stepTargets.length; i++) {
+        stepTargets[i] = graph.edgeTarget(graph.outputEdge(step, i));
+      }
+      targets[step] = distinct(stepTargets, stepTargets.length, step);
+    }
+
+    int nodes = graph.size();
+    final Map<String, List<Integer>> fanOuts = new LinkedHashMap<>();
+    for (int step = 0; step < graph.size(); step++) {
+      if (graph.toolId(step) != null && sources[step].length > 0) {
+        fanOuts
+            .computeIfAbsent(
+                graph.toolId(step) + " " + Arrays.toString(sources[step]), key -> new ArrayList<>())
+            .add(step);
+      }
+    }
+    for (final List<Integer> members : fanOuts.values()) {
+      if (nodes <= nodeBudget) {
+        return summary;
+      }
+      if (members.size() > 1) {
+        nodes -= summary.add(members.stream().mapToInt(Integer::intValue).toArray());
+      }
+    }
+
+    for (int step = 0; step < graph.size() && nodes > nodeBudget; step++) {
+      if (summary.group[step] >= 0 || continuesChain(summary, sources, targets, step)) {
+        continue;
+      }
+      final List<Integer> chain = new ArrayList<>();
+      int next = step;
+      do {
+        chain.add(next);
+        next = targets[next].length == 1 ? targets[next][0] : -1;
+      } while (next >= 0
+          && next != step
+          && summary.group[next] < 0
+          && continuesChain(summary, sources, targets, next));
+      if (chain.size() > 1) {
+        nodes -= summary.add(chain.stream().mapToInt(Integer::intValue).toArray());
+      }
+    }
+    return summary;
+  }
+
+  // Whether the step is the only target of its only source, i.e. not the start of a chain.
+  private static boolean continuesChain(
+      final GraphSummary summary, final int[][] sources, final int[][] targets, final int step) {
+    if (sources[step].length != 1) {
+      return false;
+    }
+    final int source = sources[step][0];
+    return targets[source].length == 1 && summary.group[source] < 0;
+  }
+
+  // Sorted resolved neighbours without duplicates or the step itself.
+  private static int[] distinct(final int[] steps, final int count, final int self) {
+    final int[] sorted = Arrays.copyOf(steps, count);
+    Arrays.sort(sorted);
+    int size = 0;
+    for (final int step : sorted) {
+      if (step >= 0 && step != self && (size == 0 || sorted[size - 1] != step)) {
+        sorted[size++] = step;
+      }
+    }
+    return Arrays.copyOf(sorted, size);
+  }
+
+  // Returns the number of nodes saved.
+  private int add(final int[] members) {
+    for (final int member : members) {
+      group[member] = groups.size();
+    }
+    groups.add(members);
+    return members.length - 1;
+  }
+
+  boolean isEmpty() {
+    return groups.isEmpty();
+  }
+
+  /** Group of the step, -1 if it is shown on its own. */
+  int group(final int step) {
+    return group[step];
+  }
+
+  /** Steps of the group in step order. */
+  int[] members(final int group) {
+    return groups.get(group);
+  }
+
+  int groupCount() {
+    return groups.size();
+  }
+}
@@ -0,0 +1,141 @@
+package org.galaxyproject.gxformat2;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads JSON documents (e.g. native .ga workflows) with Jackson's streaming parser into the same
+ * {@code LinkedHashMap}/{@code ArrayList}/scalar shape SnakeYAML produces for them.
+ */
+class JsonDocumentReader {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final int nestingDepthLimit;
+
+  JsonDocumentReader(final int nestingDepthLimit) {
+    this.nestingDepthLimit = nestingDepthLimit;
+  }
+
+  /** True if the first non-whitespace character of the content opens a JSON object or array. */
+  static boolean looksLikeJson(final String content) {
+    for (int i = 0; i < content.length(); i++) {
+      final char c = content.charAt(i);
+      if (c == '{' || c == '[') {
+        return true;
+      } else if (!Character.isWhitespace(c) && c != '\uFEFF') {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read the content as a single JSON value.
+   *
+   * @throws IOException if the content is not exactly one well formed JSON value or nests deeper
+   *     than allowed, callers fall back to YAML parsing in that case
+   */
+  Object read(final String content) throws IOException {
+    return read(content, null);
+  }
+
+  /** Read the content, recording where its containers are if positions isn't null. */
+  Object read(final String content, final SourcePositions positions) throws IOException {
+    try (JsonParser parser = createParser(content)) {
+      final JsonToken first = parser.nextToken();
+      if (first == null) {
+        throw new IOException("empty document");
+      }
+      final Object value = readValue(parser, first, 0, positions, "");
+      if (parser.nextToken() != null) {
+        throw new IOException("trailing content after JSON document");
+      }
+      return value;
+    }
+  }
+
+  JsonParser createParser(final String content) throws IOException {
+    return JSON_FACTORY.createParser(content);
+  }
+
+  /** Read the value starting at the given (current) token. */
+  Object readValue(final JsonParser parser, final JsonToken token) throws IOException {
+    return readValue(parser, token, 0, null, null);
+  }
+
+  // the pointer is only built while recording positions
+  private Object readValue(
+      final JsonParser parser,
+      final JsonToken token,
+      final int depth,
+      final SourcePositions positions,
+      final String pointer)
+      throws IOException {
+    switch (token) {
+      case START_OBJECT:
+        checkDepth(depth);
+        final Map<String, Object> map = new LinkedHashMap<>();
+        if (positions != null) {
+          positions.add(map, pointer, mark(parser));
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String key = parser.getCurrentName();
+          String childPointer = null;
+          if (positions != null) {
+            positions.addChild(map, key, mark(parser));
+            childPointer = SourcePositions.child(pointer, key);
+          }
+          map.put(key, readValue(parser, parser.nextToken(), depth + 1, positions, childPointer));
+        }
+        return map;
+      case START_ARRAY:
+        checkDepth(depth);
+        final List<Object> list = new ArrayList<>();
+        if (positions != null) {
+          positions.add(list, pointer, mark(parser));
+        }
+        JsonToken next;
+        while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+          String childPointer = null;
+          if (positions != null) {
+            positions.addChild(list, list.size(), mark(parser));
+            childPointer = SourcePositions.child(pointer, list.size());
+          }
+          list.add(readValue(parser, next, depth + 1, positions, childPointer));
+        }
+        return list;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        // Integer, Long or BigInteger for integers and Double for floats, as SnakeYAML does
+        return parser.getNumberValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new IOException("unexpected JSON token " + token);
+    }
+  }
+
+  private static long mark(final JsonParser parser) {
+    final JsonLocation location = parser.getTokenLocation();
+    return SourcePositions.mark(location.getLineNr(), location.getColumnNr());
+  }
+
+  private void checkDepth(final int depth) throws IOException {
+    if (depth >= nestingDepthLimit) {
+      throw new IOException("nesting depth exceeds " + nestingDepthLimit);
+    }
+  }
+}
@@ -0,0 +1,271 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deterministic layered (Sugiyama style) layout of a {@link WorkflowGraph}, flowing left to right.
+ *
+ * <p>Steps are put in layers by {@link WorkflowGraph#depths() depth}. Within a layer, steps are
+ * then reordered by the barycenter of their neighbours' ranks to reduce crossings, sweeping
+ * forwards and backwards until the order settles or the iteration budget runs out. Long edges don't
+ * get dummy nodes, which keeps each pass linear in the number of connections (plus sorting the
+ * layers).
+ *
+ * <p>When only some steps have authored positions, {@link #placeMissing} keeps those and only
+ * places the others next to the steps they are connected to.
+ */
+public final class LayeredLayout {
+  public static final int DEFAULT_ITERATIONS = 8;
+  public static final long DEFAULT_LAYER_SPACING = 250;
+  public static final long DEFAULT_NODE_SPACING = 100;
+  public static final LayeredLayout DEFAULT =
+      new LayeredLayout(DEFAULT_ITERATIONS, DEFAULT_LAYER_SPACING, DEFAULT_NODE_SPACING);
+
+  private final int iterations;
+  private final long layerSpacing;
+  private final long nodeSpacing;
+
+  /**
+   * @param iterations maximum number of crossing reduction sweeps, 0 keeps steps in step order
+   * @param layerSpacing horizontal distance between layers
+   * @param nodeSpacing vertical distance between steps of a layer
+   */
+  public LayeredLayout(final int iterations, final long layerSpacing, final long nodeSpacing) {
+    if (iterations < 0) {
+      throw new IllegalArgumentException("iterations must not be negative");
+    }
+    this.iterations = iterations;
+    this.layerSpacing = layerSpacing;
+    this.nodeSpacing = nodeSpacing;
+  }
+
+  public Positions layout(final WorkflowGraph graph) {
+    final int size = graph.size();
+    final int[] layer = graph.depths();
+    int layerCount = 0;
+    for (final int stepLayer : layer) {
+      layerCount = Math.max(layerCount, stepLayer + 1);
+    }
+    // steps grouped by layer, in step order to begin with
+    final int[] layerStart = new int[layerCount + 1];
+    for (final int stepLayer : layer) {
+      layerStart[stepLayer + 1]++;
+    }
+    for (int l = 0; l < layerCount; l++) {
+      layerStart[l + 1] += layerStart[l];
+    }
+    final int[] order = new int[size];
+    final int[] rank = new int[size];
+    final int[] filled = new int[layerCount];
+    for (int step = 0; step < size; step++) {
+      final int position = filled[layer[step]]++;
+      order[layerStart[layer[step]] + position] = step;
+      rank[step] = position;
+    }
+
+    final double[] barycenter = new double[size];
+    for (int sweep = 0; sweep < iterations; sweep++) {
+      final boolean forwards = sweep % 2 == 0;
+      boolean changed = false;
+      for (int i = 1; i < layerCount; i++) {
+        final int l = forwards ? i : layerCount - 1 - i;
+        changed |=
+            reorder(graph, order, layerStart[l], layerStart[l + 1], rank, barycenter, forwards);
+      }
+      if (!changed) {
+        break;
+      }
+    }
+
+    final long[] x = new long[size];
+    final long[] y = new long[size];
+    for (int step = 0; step < size; step++) {
+      x[step] = layer[step] * layerSpacing;
+      y[step] = rank[step] * nodeSpacing;
+    }
+    return new Positions(x, y);
+  }
+
+  /**
+   * Place the steps that have no authored position ({@code known} false), keeping the others at
+   * {@code x} and {@code y}. Each such step goes a layer after the placed steps it takes inputs
+   * from or, if it takes none, a layer before the placed steps that use it (inputs before the tools
+   * they feed), at their mean height; steps connected to neither go below everything. A step is
+   * moved down until it doesn't cover another one.
+   */
+  public Positions placeMissing(
+      final WorkflowGraph graph, final long[] x, final long[] y, final boolean[] known) {
+    final int size = graph.size();
+    final long[] placedX = x.clone();
+    final long[] placedY = y.clone();
+    final boolean[] placed = known.clone();
+    final Map<Long, Set<Long>> occupied = new HashMap<>();
+    long bottom = Long.MIN_VALUE;
+    long left = Long.MAX_VALUE;
+    for (int step = 0; step < size; step++) {
+      if (placed[step]) {
+        occupied.computeIfAbsent(placedX[step], column -> new HashSet<>()).add(placedY[step]);
+        bottom = Math.max(bottom, placedY[step]);
+        left = Math.min(left, placedX[step]);
+      }
+    }
+    // sources before the steps using them, the sort is stable so in step order within a layer
+    final int[] layer = graph.depths();
+    final Integer[] byLayer = new Integer[size];
+    for (int step = 0; step < size; step++) {
+      byLayer[step] = step;
+    }
+    Arrays.sort(byLayer, (a, b) -> Integer.compare(layer[a], layer[b]));
+    for (final int step : byLayer) {
+      if (placed[step]) {
+        continue;
+      }
+      long maxX = Long.MIN_VALUE;
+      long sumY = 0;
+      int count = 0;
+      for (int edge = graph.inputStart(step); edge < graph.inputEnd(step); edge++) {
+        final int source = graph.edgeSource(edge);
+        if (source >= 0 && source != step && placed[source]) {
+          maxX = Math.max(maxX, placedX[source]);
+          sumY += placedY[source];
+          count++;
+        }
+      }
+      if (count > 0) {
+        place(step, maxX + layerSpacing, sumY / count, placedX, placedY, placed, occupied);
+      }
+    }
+    // then the steps using them first, in step order within a layer
+    final Integer[] byLayerBackwards = byLayer.clone();
+    Arrays.sort(byLayerBackwards, (a, b) -> Integer.compare(layer[b], layer[a]));
+    for (final int step : byLayerBackwards) {
+      if (placed[step]) {
+        continue;
+      }
+      long minX = Long.MAX_VALUE;
+      long sumY = 0;
+      int count = 0;
+      for (int j = 0; j < graph.outputCount(step); j++) {
+        final int target = graph.edgeTarget(graph.outputEdge(step, j));
+        if (target != step && placed[target]) {
+          minX = Math.min(minX, placedX[target]);
+          sumY += placedY[target];
+          count++;
+        }
+      }
+      if (count > 0) {
+        place(step, minX - layerSpacing, sumY / count, placedX, placedY, placed, occupied);
+      }
+    }
+    for (int step = 0; step < size; step++) {
+      if (!placed[step]) {
+        place(
+            step,
+            left == Long.MAX_VALUE ? 0 : left,
+            bottom == Long.MIN_VALUE ? 0 : bottom + nodeSpacing,
+            placedX,
+            placedY,
+            placed,
+            occupied);
+      }
+    }
+    return new Positions(placedX, placedY);
+  }
+
+  private void place(
+      final int step,
+      final long x,
+      final long y,
+      final long[] placedX,
+      final long[] placedY,
+      final boolean[] placed,
+      final Map<Long, Set<Long>> occupied) {
+    final Set<Long> column = occupied.computeIfAbsent(x, key -> new HashSet<>());
+    long free = y;
+    while (!column.add(free)) {
+      free += nodeSpacing;
+    }
+    placedX[step] = x;
+    placedY[step] = free;
+    placed[step] = true;
+  }
+
+  // Sort one layer by the mean rank of its sources (forwards) or targets (backwards), steps without
+  // any keep their rank. Returns whether the order changed.
+  private static boolean reorder(
+      final WorkflowGraph graph,
+      final int[] order,
+      final int start,
+      final int end,
+      final int[] rank,
+      final double[] barycenter,
+      final boolean forwards) {
+    for (int i = start; i < end; i++) {
+      final int step = order[i];
+      long sum = 0;
+      int count = 0;
+      if (forwards) {
+        for (int edge = graph.inputStart(step); edge < graph.inputEnd(step); edge++) {
+          final int source = graph.edgeSource(edge);
+          if (source >= 0 && source != step) {
+            sum += rank[source];
+            count++;
+          }
+        }
+      } else {
+        for (int j = 0; j < graph.outputCount(step); j++) {
+          final int target = graph.edgeTarget(graph.outputEdge(step, j));
+          if (target != step) {
+            sum += rank[target];
+            count++;
+          }
+        }
+      }
+      barycenter[step] = count == 0 ? rank[step] : (double) sum / count;
+    }
+    final Integer[] layer = new Integer[end - start];
+    for (int i = start; i < end; i++) {
+      layer[i - start] = order[i];
+    }
+    // ties keep their current order so the result only depends on the graph
+    Arrays.sort(
+        layer,
+        (a, b) -> {
+          final int byBarycenter = Double.compare(barycenter[a], barycenter[b]);
+          return byBarycenter != 0 ? byBarycenter : Integer.compare(rank[a], rank[b]);
+        });
+    boolean changed = false;
+    for (int i = start; i < end; i++) {
+      final int step = layer[i - start];
+      if (order[i] != step) {
+        changed = true;
+        order[i] = step;
+      }
+      rank[step] = i - start;
+    }
+    return changed;
+  }
+
+  /** Coordinates of the steps, indexed like the graph that was laid out. */
+  public static final class Positions {
+    private final long[] x;
+    private final long[] y;
+
+    private Positions(final long[] x, final long[] y) {
+      this.x = x;
+      this.y = y;
+    }
+
+    public long x(final int step) {
+      return x[step];
+    }
+
+    public long y(final int step) {
+      return y[step];
+    }
+  }
+}
@@ -9,6 +9,38 @@ public class Lint {
   public static int EXIT_CODE_FILE_PARSE_FAILED = 3;
 
   public static LintContext lint(final Map<String, Object> workflow) {
+    return lint(workflow, false);
+  }
+
+  /** Lint the workflow, also recording valid and info messages if {@code validAndInfo}. */
+  public static LintContext lint(final Map<String, Object> workflow, final boolean validAndInfo) {
+    return lint(workflow, validAndInfo, 0);
+  }
+
+  /**
+   * Lint the workflow, stopping once {@code errorBudget} errors were found (0 to find them all).
+   * Warnings found until then are kept.
+   */
+  public static LintContext lint(
+      final Map<String, Object> workflow, final boolean validAndInfo, final int errorBudget) {
+    return lint(workflow, validAndInfo, errorBudget, null);
+  }
+
+  /**
+   * Parse and lint a document, its findings located with the positions recorded while parsing it,
+   * see {@link LintContext#getFindings()}.
+   */
+  public static LintContext lintDocument(final String content) {
+    final SourcePositions positions = new SourcePositions();
+    final Map<String, Object> workflow = DocumentParser.load(content, positions);
+    return lint(workflow, false, 0, positions);
+  }
+
+  private static LintContext lint(
+      final Map<String, Object> workflow,
+      final boolean validAndInfo,
+      final int errorBudget,
+      final SourcePositions positions) {
     final String wfClass = (String) workflow.get("class");
     GalaxyWorkflowLinter linter;
     if (wfClass != null && wfClass.equals("GalaxyWorkflow")) {
@@ -16,7 +48,8 @@ public class Lint {
     } else {
       linter = new NativeLinter();
     }
-    final LintContext lintContext = new LintContext();
+    final LintContext lintContext = new LintContext(validAndInfo, errorBudget);
+    lintContext.locate(workflow, positions);
     linter.lint(lintContext, workflow);
     return lintContext;
   }
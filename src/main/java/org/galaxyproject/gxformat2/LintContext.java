@@ -3,16 +3,51 @@ package org.galaxyproject.gxformat2;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Messages of a lint run. Messages are kept as format strings and arguments and only formatted when
+ * read, arguments may be whole parts of the workflow. Valid and info messages are only recorded if
+ * asked for, nothing reads them by default.
+ *
+ * <p>Errors and warnings reported by a {@link LintRule} remember the map or list and the key they
+ * are about, {@link #getFindings()} locates them in the document. {@link #collectMessages()} is the
+ * same findings as text.
+ *
+ * <p>With an error budget, linters stop once that many errors were found, keeping the warnings
+ * found until then. Whether the workflow has errors is known either way, all the messages only if
+ * the budget wasn't used up, see {@link #isBudgetExhausted()}.
+ */
 public class LintContext {
   private boolean foundErrors = false;
   private boolean foundWarns = false;
+  private final boolean validAndInfo;
+  private final int errorBudget;
 
-  private List<String> validMessages = new ArrayList<String>();
-  private List<String> infoMessages = new ArrayList<String>();
-  private List<String> warnMessages = new ArrayList<String>();
-  private List<String> errorMessages = new ArrayList<String>();
+  private final List<Message> validMessages;
+  private final List<Message> infoMessages;
+  private final List<Message> warnMessages = new ArrayList<Message>();
+  private final List<Message> errorMessages = new ArrayList<Message>();
 
-  LintContext() {}
+  // what findings are located in, see locate
+  private Object root;
+  private SourcePositions sourcePositions;
+
+  LintContext() {
+    this(false);
+  }
+
+  LintContext(final boolean validAndInfo) {
+    this(validAndInfo, 0);
+  }
+
+  LintContext(final boolean validAndInfo, final int errorBudget) {
+    if (errorBudget < 0) {
+      throw new IllegalArgumentException("errorBudget must not be negative");
+    }
+    this.validAndInfo = validAndInfo;
+    this.errorBudget = errorBudget;
+    this.validMessages = validAndInfo ? new ArrayList<Message>() : null;
+    this.infoMessages = validAndInfo ? new ArrayList<Message>() : null;
+  }
 
   public boolean getFoundErrors() {
     return this.foundErrors;
@@ -22,39 +57,174 @@ public class LintContext {
     return this.foundWarns;
   }
 
+  /**
+   * Whether as many errors as the error budget allows were found, so linting stopped early. Never
+   * true without a budget.
+   */
+  public boolean isBudgetExhausted() {
+    return hasErrorBudget() && this.errorMessages.size() >= this.errorBudget;
+  }
+
+  boolean hasErrorBudget() {
+    return this.errorBudget > 0;
+  }
+
+  /**
+   * An empty context, without an error budget, for linting part of the workflow separately, see
+   * {@link #addAll}.
+   */
+  LintContext child() {
+    return new LintContext(this.validAndInfo, 0);
+  }
+
+  /**
+   * Locate findings in the given document, with the positions recorded while parsing it or, if
+   * null, only by JSON pointer.
+   */
+  void locate(final Object root, final SourcePositions sourcePositions) {
+    this.root = root;
+    this.sourcePositions = sourcePositions;
+  }
+
+  /** Append the messages of a child context as if they had been found here. */
+  void addAll(final LintContext child) {
+    this.foundErrors |= child.foundErrors;
+    this.foundWarns |= child.foundWarns;
+    if (this.validAndInfo) {
+      this.validMessages.addAll(child.validMessages);
+      this.infoMessages.addAll(child.infoMessages);
+    }
+    this.errorMessages.addAll(child.errorMessages);
+    this.warnMessages.addAll(child.warnMessages);
+  }
+
   void valid(String message, Object... args) {
-    this.validMessages.add(String.format(message, args));
+    if (this.validAndInfo) {
+      this.validMessages.add(new Message(message, args));
+    }
   }
 
   void info(String message, Object... args) {
-    this.infoMessages.add(String.format(message, args));
+    if (this.validAndInfo) {
+      this.infoMessages.add(new Message(message, args));
+    }
   }
 
   void error(String message, Object... args) {
     this.foundErrors = true;
-    this.errorMessages.add(String.format(message, args));
+    if (!isBudgetExhausted()) {
+      this.errorMessages.add(new Message(message, args));
+    }
+  }
+
+  /** An error about the key (or list index, or the container itself if null) of a container. */
+  void error(LintRule rule, Object container, Object key, Object... args) {
+    this.foundErrors = true;
+    if (!isBudgetExhausted()) {
+      this.errorMessages.add(new Message(rule, container, key, args));
+    }
   }
 
   void warn(String message, Object... args) {
     this.foundWarns = true;
-    this.warnMessages.add(String.format(message, args));
+    if (!isBudgetExhausted()) {
+      this.warnMessages.add(new Message(message, args));
+    }
+  }
+
+  void warn(LintRule rule, Object container, Object key, Object... args) {
+    this.foundWarns = true;
+    if (!isBudgetExhausted()) {
+      this.warnMessages.add(new Message(rule, container, key, args));
+    }
+  }
+
+  /** Errors, then warnings, located in the document linted. */
+  public List<LintFinding> getFindings() {
+    if (this.sourcePositions == null && this.root != null) {
+      this.sourcePositions = SourcePositions.of(this.root);
+    }
+    final List<LintFinding> findings = new ArrayList<LintFinding>();
+    for (final Message message : this.errorMessages) {
+      findings.add(message.locate(LintFinding.Severity.ERROR, this.sourcePositions));
+    }
+    for (final Message message : this.warnMessages) {
+      findings.add(message.locate(LintFinding.Severity.WARNING, this.sourcePositions));
+    }
+    return findings;
   }
 
   public List<String> collectMessages() {
     final List<String> messages = new ArrayList<String>();
-    for (final String message : this.errorMessages) {
-      messages.add(".. ERROR " + message);
+    for (final Message message : this.errorMessages) {
+      messages.add(".. ERROR " + message.format());
     }
 
-    for (final String message : this.warnMessages) {
-      messages.add(".. WARNING " + message);
+    for (final Message message : this.warnMessages) {
+      messages.add(".. WARNING " + message.format());
     }
     return messages;
   }
 
+  /** Valid messages, empty unless the context records valid and info messages. */
+  public List<String> getValidMessages() {
+    return format(this.validMessages);
+  }
+
+  /** Info messages, empty unless the context records valid and info messages. */
+  public List<String> getInfoMessages() {
+    return format(this.infoMessages);
+  }
+
   public void printMessages() {
     for (final String message : this.collectMessages()) {
       System.out.println(message);
     }
   }
+
+  private static List<String> format(final List<Message> messages) {
+    final List<String> formatted = new ArrayList<String>();
+    if (messages != null) {
+      for (final Message message : messages) {
+        formatted.add(message.format());
+      }
+    }
+    return formatted;
+  }
+
+  private static class Message {
+    private final LintRule rule;
+    private final Object container;
+    private final Object key;
+    private final String template;
+    private final Object[] args;
+
+    Message(final String template, final Object[] args) {
+      this.rule = null;
+      this.container = null;
+      this.key = null;
+      this.template = template;
+      this.args = args;
+    }
+
+    Message(final LintRule rule, final Object container, final Object key, final Object[] args) {
+      this.rule = rule;
+      this.container = container;
+      this.key = key;
+      this.template = rule.getTemplate();
+      this.args = args;
+    }
+
+    String format() {
+      return String.format(template, args);
+    }
+
+    LintFinding locate(final LintFinding.Severity severity, final SourcePositions positions) {
+      final String path = positions == null ? null : positions.pointer(container, key);
+      final long mark =
+          positions == null ? SourcePositions.UNKNOWN : positions.mark(container, key);
+      return new LintFinding(
+          severity, rule, path, SourcePositions.line(mark), SourcePositions.column(mark), format());
+    }
+  }
 }
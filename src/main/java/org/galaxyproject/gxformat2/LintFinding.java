@@ -0,0 +1,63 @@
+package org.galaxyproject.gxformat2;
+
+/**
+ * An error or warning of a lint run and where it is in the document: the JSON pointer of the key
+ * (or list element) it is about, and its line and column when the document was parsed with {@link
+ * DocumentParser#load(String, SourcePositions)}. A key that is absent is located at its map.
+ */
+public final class LintFinding {
+  public enum Severity {
+    ERROR,
+    WARNING
+  }
+
+  private final Severity severity;
+  private final LintRule rule;
+  private final String path;
+  private final int line;
+  private final int column;
+  private final String message;
+
+  LintFinding(
+      final Severity severity,
+      final LintRule rule,
+      final String path,
+      final int line,
+      final int column,
+      final String message) {
+    this.severity = severity;
+    this.rule = rule;
+    this.path = path;
+    this.line = line;
+    this.column = column;
+    this.message = message;
+  }
+
+  public Severity getSeverity() {
+    return severity;
+  }
+
+  /** The rule reporting this, null for messages not reported by a rule. */
+  public LintRule getRule() {
+    return rule;
+  }
+
+  /** JSON pointer, {@code ""} for the whole document, null if unknown. */
+  public String getPath() {
+    return path;
+  }
+
+  /** 1-based line, -1 if unknown. */
+  public int getLine() {
+    return line;
+  }
+
+  /** 1-based column, -1 if unknown. */
+  public int getColumn() {
+    return column;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+}
@@ -0,0 +1,33 @@
+package org.galaxyproject.gxformat2;
+
+/** The checks linters report findings for, each with a stable code and its message format. */
+public enum LintRule {
+  NOT_A_DICTIONARY("not-a-dictionary", "expected [%s] to be a dictionary type"),
+  MISSING_KEY("missing-key", "expected to have key [%s] but absent"),
+  WRONG_CLASS("wrong-class", "expected value [%s] with key [%s] to be of class %s"),
+  WRONG_VALUE("wrong-value", "expected value [%s] with key [%s] to be %s"),
+  STEP_EXPORT_ERRORS(
+      "step-export-errors", "tool step contains error indicated during Galaxy export - %s"),
+  STEP_KEY_NOT_INTEGER("step-key-not-integer", "expected step_key to be integer not [%s]"),
+  STEP_NOT_A_MAP("step-not-a-map", "expected step value to be Map not [%s]"),
+  OUTPUT_NOT_A_MAP("output-not-a-map", "Not a map"),
+  NO_OUTPUTS("no-outputs", NativeLinter.LINT_FAILED_NO_OUTPUTS),
+  OUTPUT_WITHOUT_LABEL("output-without-label", NativeLinter.LINT_FAILED_OUTPUT_NO_LABEL),
+  SCHEMA_VALIDATION("schema-validation", "Validation failed %s");
+
+  private final String code;
+  private final String template;
+
+  LintRule(final String code, final String template) {
+    this.code = code;
+    this.template = template;
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  String getTemplate() {
+    return template;
+  }
+}
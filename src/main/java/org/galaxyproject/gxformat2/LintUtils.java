@@ -7,12 +7,12 @@ class LintUtils {
   static <T> T ensureKey(
       LintContext lintContext, Object hasKeys, String key, Class<T> hasClass, Object hasValue) {
     if (!(hasKeys instanceof Map)) {
-      lintContext.error("expected [%s] to be a dictionary type", hasKeys);
+      lintContext.error(LintRule.NOT_A_DICTIONARY, hasKeys, null, hasKeys);
       return null;
     }
     final Map<String, Object> map = (Map<String, Object>) hasKeys;
     if (!map.containsKey(key)) {
-      lintContext.error("expected to have key [%s] but absent", key);
+      lintContext.error(LintRule.MISSING_KEY, map, key, key);
     }
     final Object value = map.get(key);
     return ensureKeyHasValue(lintContext, map, key, value, hasClass, hasValue);
@@ -21,7 +21,7 @@ class LintUtils {
   static <T> T ensureKeyIfPresent(
       LintContext lintContext, Object hasKeys, String key, T defaultValue, Class<T> hasClass) {
     if (!(hasKeys instanceof Map)) {
-      lintContext.error("expected [%s] to be a dictionary type", hasKeys);
+      lintContext.error(LintRule.NOT_A_DICTIONARY, hasKeys, null, hasKeys);
       return null;
     }
     final Map<String, Object> map = (Map<String, Object>) hasKeys;
@@ -40,12 +40,11 @@ class LintUtils {
       Class<T> hasClass,
       Object hasValue) {
     if (value != null && !hasClass.isInstance(value)) {
-      lintContext.error(
-          "expected value [%s] with key [%s] to be of class %s", key, value, hasClass);
+      lintContext.error(LintRule.WRONG_CLASS, hasKeys, key, key, value, hasClass);
       return null;
     }
     if (hasValue != null && !hasValue.equals(value)) {
-      lintContext.error("expected value [%s] with key [%s] to be %s", key, value, hasValue);
+      lintContext.error(LintRule.WRONG_VALUE, hasKeys, key, key, value, hasValue);
     }
     return (T) value;
   }
@@ -53,7 +52,7 @@ class LintUtils {
   static void lintStepErrors(LintContext lintContext, Map<String, Object> step) {
     final String errors = ensureKeyIfPresent(lintContext, step, "errors", null, String.class);
     if (errors != null) {
-      lintContext.warn("tool step contains error indicated during Galaxy export - " + errors);
+      lintContext.warn(LintRule.STEP_EXPORT_ERRORS, step, "errors", errors);
     }
   }
 
@@ -0,0 +1,91 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Lints a workflow during a {@link WorkflowTraversal}, with the same messages as {@link
+ * Lint#lint(Map)}. Native workflows are linted step by step with the rules of {@link NativeLinter},
+ * only entering the subworkflows it would lint. Other workflows, e.g. Format 2 ones, are linted as
+ * a whole when the traversal starts.
+ */
+public final class LintVisitor implements StepVisitor {
+  // frame of the workflows the linter doesn't look at
+  private static final Frame SKIPPED = new Frame();
+
+  private final LintContext lintContext = new LintContext();
+  private boolean lintedWhole = false;
+  // one frame per workflow being visited
+  private final Deque<Frame> frames = new ArrayDeque<>();
+
+  private static final class Frame {
+    private final NativeLinter.Outputs outputs = new NativeLinter.Outputs();
+    // the subworkflow of the current step, if the traversal enters it next
+    private Map<String, Object> subworkflow;
+  }
+
+  public LintContext getLintContext() {
+    return lintContext;
+  }
+
+  @Override
+  public void enterWorkflow(final WorkflowTraversal.Level level) {
+    if (level.getParent() == null) {
+      lintContext.locate(level.getWorkflow(), null);
+      final Object wfClass = level.getWorkflow().get("class");
+      // the graph is only made of the native steps the linter walks without a class
+      lintedWhole = wfClass != null;
+      if ("GalaxyWorkflow".equals(wfClass)) {
+        new Format2Linter().lint(lintContext, level.getWorkflow());
+      } else if (lintedWhole) {
+        new NativeLinter(Integer.MAX_VALUE).lint(lintContext, level.getWorkflow());
+      }
+    }
+    if (lintedWhole
+        || level.getParent() != null && frames.peek().subworkflow != level.getWorkflow()) {
+      frames.push(SKIPPED);
+      return;
+    }
+    NativeLinter.lintWorkflowStart(lintContext, level.getWorkflow());
+    frames.push(new Frame());
+  }
+
+  @Override
+  public void enterStep(final WorkflowTraversal.Level level, final int step) {
+    final Frame frame = frames.peek();
+    if (frame == SKIPPED) {
+      return;
+    }
+    final WorkflowAdapter.NormalizedStep normalizedStep = level.getGraph().step(step);
+    final Map<String, Object> stepDefinition =
+        NativeLinter.lintStep(lintContext, normalizedStep.getStepDefinition(), frame.outputs);
+    if (NativeLinter.runsSubworkflow(lintContext, stepDefinition)) {
+      final Map<String, Object> subworkflow = NativeLinter.subworkflow(lintContext, stepDefinition);
+      if (subworkflow != null && subworkflow == normalizedStep.getSubworkflow()) {
+        frame.subworkflow = subworkflow;
+      } else {
+        // not a subworkflow the traversal enters
+        new NativeLinter(Integer.MAX_VALUE).lint(lintContext, subworkflow);
+      }
+    }
+  }
+
+  @Override
+  public void exitStep(final WorkflowTraversal.Level level, final int step) {
+    final Frame frame = frames.peek();
+    if (frame == SKIPPED) {
+      return;
+    }
+    frame.subworkflow = null;
+    NativeLinter.lintStepEnd(lintContext, level.getGraph().step(step).getStepDefinition());
+  }
+
+  @Override
+  public void exitWorkflow(final WorkflowTraversal.Level level) {
+    final Frame frame = frames.pop();
+    if (frame != SKIPPED) {
+      NativeLinter.lintWorkflowEnd(lintContext, level.getWorkflow(), frame.outputs);
+    }
+  }
+}
@@ -1,58 +1,237 @@
 package org.galaxyproject.gxformat2;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Lints native workflows. Embedded subworkflows with at least {@code sequentialThreshold} steps are
+ * linted as fork-join tasks on a pool of the linter's own, each into its own {@link LintContext},
+ * while the enclosing workflow is linted on the calling thread. Their messages are merged when the
+ * enclosing workflow gets to their step, so the messages are the same as linting everything in
+ * turn. With an error budget everything is linted in turn, to stop as soon as the budget is used
+ * up.
+ *
+ * <p>Linting on an interrupted thread throws {@link CancellationException} at the next step, the
+ * subworkflows forked from it stop at their next step as well.
+ */
 public class NativeLinter implements GalaxyWorkflowLinter {
   public static String LINT_FAILED_NO_OUTPUTS = "Workflow contained no outputs";
   public static String LINT_FAILED_OUTPUT_NO_LABEL = "Workflow contained output without a label";
+  public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 16;
+
+  // not the common pool, which the rest of the application shares
+  private static final ForkJoinPool POOL =
+      new ForkJoinPool(
+          Runtime.getRuntime().availableProcessors(),
+          pool -> {
+            final ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("galaxy-workflow-linter-" + thread.getPoolIndex());
+            return thread;
+          },
+          null,
+          false);
+
+  private final int sequentialThreshold;
+
+  public NativeLinter() {
+    this(DEFAULT_SEQUENTIAL_THRESHOLD);
+  }
+
+  /** Use {@link Integer#MAX_VALUE} as the threshold to lint everything on the calling thread. */
+  public NativeLinter(final int sequentialThreshold) {
+    this.sequentialThreshold = sequentialThreshold;
+  }
 
   public void lint(final LintContext lintContext, final Map<String, Object> workflow) {
-    LintUtils.ensureKey(lintContext, workflow, "format-version", String.class, "0.1");
-    LintUtils.ensureKey(lintContext, workflow, "a_galaxy_workflow", String.class, "true");
+    lint(lintContext, workflow, new AtomicBoolean());
+  }
 
-    final Map<String, Object> steps = LintUtils.stepMap(lintContext, workflow);
-    boolean foundOutputs = false;
-    boolean foundOutputsWithoutLabel = false;
+  private void lint(
+      final LintContext lintContext,
+      final Map<String, Object> workflow,
+      final AtomicBoolean cancelled) {
+    final Map<Object, ForkJoinTask<LintContext>> forked =
+        forkSubworkflows(lintContext, workflow, cancelled);
+    try {
+      lint(lintContext, workflow, forked, cancelled);
+    } catch (RuntimeException | Error e) {
+      // stops the forked subworkflows that already started too
+      cancelled.set(true);
+      throw e;
+    } finally {
+      // only left running if linting the enclosing workflow failed
+      for (final ForkJoinTask<LintContext> task : forked.values()) {
+        task.cancel(false);
+      }
+    }
+  }
+
+  private Map<Object, ForkJoinTask<LintContext>> forkSubworkflows(
+      final LintContext lintContext,
+      final Map<String, Object> workflow,
+      final AtomicBoolean cancelled) {
+    final Map<Object, ForkJoinTask<LintContext>> forked = new IdentityHashMap<>();
+    final Object steps = workflow == null ? null : workflow.get("steps");
+    if (lintContext.hasErrorBudget() || !(steps instanceof Map)) {
+      return forked;
+    }
+    for (final Object step : ((Map<?, ?>) steps).values()) {
+      if (!(step instanceof Map) || !"subworkflow".equals(((Map<?, ?>) step).get("type"))) {
+        continue;
+      }
+      final Object subworkflow = ((Map<?, ?>) step).get("subworkflow");
+      if (subworkflow instanceof Map
+          && ((Map<?, ?>) subworkflow).get("steps") instanceof Map
+          && ((Map<?, ?>) ((Map<?, ?>) subworkflow).get("steps")).size() >= sequentialThreshold
+          && !forked.containsKey(subworkflow)) {
+        final LintContext subworkflowContext = lintContext.child();
+        final ForkJoinTask<LintContext> task =
+            ForkJoinTask.adapt(
+                () -> {
+                  lint(subworkflowContext, (Map<String, Object>) subworkflow, cancelled);
+                  return subworkflowContext;
+                });
+        if (ForkJoinTask.getPool() == POOL) {
+          task.fork();
+        } else {
+          POOL.execute(task);
+        }
+        forked.put(subworkflow, task);
+      }
+    }
+    return forked;
+  }
+
+  private void lint(
+      final LintContext lintContext,
+      final Map<String, Object> workflow,
+      final Map<Object, ForkJoinTask<LintContext>> forked,
+      final AtomicBoolean cancelled) {
+    final Map<String, Object> steps = lintWorkflowStart(lintContext, workflow);
+    final Outputs outputs = new Outputs();
 
     for (Map.Entry<String, Object> stepEntry : steps.entrySet()) {
+      // also stops the workflows this is a subworkflow of, they check after each step
+      if (lintContext.isBudgetExhausted()) {
+        return;
+      }
+      // forked subworkflows don't see the caller's interrupt, only the flag
+      if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("linting interrupted");
+      }
       final String orderIndexStr = stepEntry.getKey();
       try {
         final int orderIndex = Integer.parseInt(orderIndexStr);
       } catch (NumberFormatException e) {
-        lintContext.error("expected step_key to be integer not [%s]", orderIndexStr);
+        lintContext.error(LintRule.STEP_KEY_NOT_INTEGER, steps, orderIndexStr, orderIndexStr);
       }
-      if (!(stepEntry.getValue() instanceof Map)) {
-        lintContext.error("expected step value to be Map not [%s]", stepEntry.getValue());
-      }
-      Map<String, Object> step = (Map<String, Object>) stepEntry.getValue();
-      List<String> workflowOutputs =
-          LintUtils.ensureKeyIfPresent(
-              lintContext, step, "workflow_outputs", new ArrayList<String>(), List.class);
-      for (Object workflowOutputObject : workflowOutputs) {
-        foundOutputs = true;
-        if (!(workflowOutputObject instanceof Map)) {
-          lintContext.error("Not a map");
-        }
-        final Map<String, String> workflowOutput = (Map<String, String>) workflowOutputObject;
-        final String label = workflowOutput.get("label");
-        if (label == null || label.length() == 0) {
-          foundOutputsWithoutLabel = true;
+      final Map<String, Object> step = lintStep(lintContext, stepEntry.getValue(), outputs);
+      if (runsSubworkflow(lintContext, step)) {
+        final Map<String, Object> subworkflow = subworkflow(lintContext, step);
+        final ForkJoinTask<LintContext> task = forked.get(subworkflow);
+        if (task != null) {
+          lintContext.addAll(join(task));
+        } else {
+          lint(lintContext, subworkflow, cancelled);
         }
       }
-      final String stepType =
-          LintUtils.ensureKeyIfPresent(lintContext, step, "type", "tool", String.class);
-      assert stepType != null;
-      if (stepType != null && stepType.equals("subworkflow")) {
-        final Map<String, Object> subworkflow =
-            (Map<String, Object>)
-                LintUtils.ensureKey(lintContext, step, "subworkflow", Map.class, null);
-        assert subworkflow != null;
-        lint(lintContext, subworkflow);
+      lintStepEnd(lintContext, step);
+    }
+    if (lintContext.isBudgetExhausted()) {
+      return;
+    }
+    lintWorkflowEnd(lintContext, workflow, outputs);
+  }
+
+  // Wait for a forked subworkflow, interruptibly, unlike ForkJoinTask.join.
+  private static LintContext join(final ForkJoinTask<LintContext> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("linting interrupted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw (RuntimeException) e.getCause();
+    }
+  }
+
+  // The rules, in the order lint applies them, also applied step by step by LintVisitor.
+
+  /** Whether any step has workflow outputs and whether any of those has no label. */
+  static final class Outputs {
+    private boolean found = false;
+    // the first one, where the warning goes
+    private Map<String, String> withoutLabel = null;
+  }
+
+  /** Checks of the workflow before its steps, returns the steps. */
+  static Map<String, Object> lintWorkflowStart(
+      final LintContext lintContext, final Map<String, Object> workflow) {
+    LintUtils.ensureKey(lintContext, workflow, "format-version", String.class, "0.1");
+    LintUtils.ensureKey(lintContext, workflow, "a_galaxy_workflow", String.class, "true");
+    return LintUtils.stepMap(lintContext, workflow);
+  }
+
+  /** Checks of a step before its subworkflow, returns the step. */
+  static Map<String, Object> lintStep(
+      final LintContext lintContext, final Object stepValue, final Outputs outputs) {
+    if (!(stepValue instanceof Map)) {
+      lintContext.error(LintRule.STEP_NOT_A_MAP, stepValue, null, stepValue);
+    }
+    Map<String, Object> step = (Map<String, Object>) stepValue;
+    List<String> workflowOutputs =
+        LintUtils.ensureKeyIfPresent(
+            lintContext, step, "workflow_outputs", new ArrayList<String>(), List.class);
+    for (int i = 0; i < workflowOutputs.size(); i++) {
+      final Object workflowOutputObject = workflowOutputs.get(i);
+      outputs.found = true;
+      if (!(workflowOutputObject instanceof Map)) {
+        lintContext.error(LintRule.OUTPUT_NOT_A_MAP, workflowOutputs, i);
+      }
+      final Map<String, String> workflowOutput = (Map<String, String>) workflowOutputObject;
+      final String label = workflowOutput.get("label");
+      if ((label == null || label.length() == 0) && outputs.withoutLabel == null) {
+        outputs.withoutLabel = workflowOutput;
       }
-      LintUtils.lintStepErrors(lintContext, step);
     }
+    return step;
+  }
+
+  static boolean runsSubworkflow(final LintContext lintContext, final Map<String, Object> step) {
+    final String stepType =
+        LintUtils.ensureKeyIfPresent(lintContext, step, "type", "tool", String.class);
+    assert stepType != null;
+    return stepType != null && stepType.equals("subworkflow");
+  }
+
+  /** The subworkflow to lint of a step that {@link #runsSubworkflow runs one}. */
+  static Map<String, Object> subworkflow(
+      final LintContext lintContext, final Map<String, Object> step) {
+    final Map<String, Object> subworkflow =
+        (Map<String, Object>)
+            LintUtils.ensureKey(lintContext, step, "subworkflow", Map.class, null);
+    assert subworkflow != null;
+    return subworkflow;
+  }
+
+  static void lintStepEnd(final LintContext lintContext, final Map<String, Object> step) {
+    LintUtils.lintStepErrors(lintContext, step);
+  }
+
+  static void lintWorkflowEnd(
+      final LintContext lintContext, final Map<String, Object> workflow, final Outputs outputs) {
     Map<String, Object> reportMap =
         (Map<String, Object>)
             LintUtils.ensureKeyIfPresent(
@@ -60,11 +239,11 @@ public class NativeLinter implements GalaxyWorkflowLinter {
     if (reportMap != null) {
       LintUtils.ensureKey(lintContext, reportMap, "markdown", String.class, null);
     }
-    if (!foundOutputs) {
-      lintContext.warn(LINT_FAILED_NO_OUTPUTS);
+    if (!outputs.found) {
+      lintContext.warn(LintRule.NO_OUTPUTS, workflow, null);
     }
-    if (foundOutputsWithoutLabel) {
-      lintContext.warn(LINT_FAILED_OUTPUT_NO_LABEL);
+    if (outputs.withoutLabel != null) {
+      lintContext.warn(LintRule.OUTPUT_WITHOUT_LABEL, outputs.withoutLabel, "label");
     }
   }
 }
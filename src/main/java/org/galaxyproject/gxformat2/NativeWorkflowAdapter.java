@@ -17,21 +17,13 @@ public class NativeWorkflowAdapter implements WorkflowAdapter {
   public List<NormalizedStep> normalizedSteps() {
     Map<String, Map<String, Object>> steps =
         (Map<String, Map<String, Object>>) this.workflow.get("steps");
-    Map<Integer, String> orderIndexToLabel = new HashMap();
-    for (Map.Entry<String, Map<String, Object>> stepEntry : steps.entrySet()) {
-      Map<String, Object> stepDef = stepEntry.getValue();
-      String label = (String) stepDef.get("label");
-      if (label == null) {
-        label = stepEntry.getKey();
-      }
-      orderIndexToLabel.put(Integer.parseInt(stepEntry.getKey()), label);
-    }
+    final OrderIndexLabels orderIndexToLabel = new OrderIndexLabels(steps);
     final List<NormalizedStep> normalizedSteps = new ArrayList();
     for (Map.Entry<String, Map<String, Object>> stepEntry : steps.entrySet()) {
       final NormalizedStep step = new NormalizedStep();
       final Map<String, Object> stepDef = stepEntry.getValue();
-      ensurePosition(stepDef, Integer.parseInt(stepEntry.getKey()));
       step.stepDefinition = stepDef;
+      step.position = WorkflowAdapter.position(stepDef, Integer.parseInt(stepEntry.getKey()));
       step.inputs = new ArrayList<Input>();
       String doc = (String) stepDef.get("annotation");
       if (doc.equals("")) {
@@ -58,7 +50,8 @@ public class NativeWorkflowAdapter implements WorkflowAdapter {
             outputName = null;
           }
           final Integer outputIndex = (Integer) inputConnection.get("id");
-          final String outputLabel = orderIndexToLabel.get(outputIndex);
+          final String outputLabel =
+              outputIndex != null ? orderIndexToLabel.get(outputIndex) : null;
           final Input input = new Input();
           input.inputName = inputName;
           input.sourceOutputName = outputName;
@@ -78,4 +71,49 @@ public class NativeWorkflowAdapter implements WorkflowAdapter {
     }
     return normalizedSteps;
   }
+
+  /**
+   * Step labels (or the order index if a step has none) by order index. Order indexes are dense in
+   * practice so they're kept in an array, falling back to a map for very sparse ones.
+   */
+  private static class OrderIndexLabels {
+    private final String[] labels;
+    private final Map<Integer, String> sparseLabels;
+
+    OrderIndexLabels(final Map<String, Map<String, Object>> steps) {
+      final int[] orderIndexes = new int[steps.size()];
+      int minOrderIndex = 0;
+      int maxOrderIndex = -1;
+      int i = 0;
+      for (final String key : steps.keySet()) {
+        orderIndexes[i] = Integer.parseInt(key);
+        minOrderIndex = Math.min(minOrderIndex, orderIndexes[i]);
+        maxOrderIndex = Math.max(maxOrderIndex, orderIndexes[i]);
+        i++;
+      }
+      final boolean dense = minOrderIndex >= 0 && maxOrderIndex < 2 * steps.size() + 16;
+      labels = dense ? new String[maxOrderIndex + 1] : null;
+      sparseLabels = dense ? null : new HashMap<>();
+      i = 0;
+      for (final Map.Entry<String, Map<String, Object>> stepEntry : steps.entrySet()) {
+        String label = (String) stepEntry.getValue().get("label");
+        if (label == null) {
+          label = stepEntry.getKey();
+        }
+        final int orderIndex = orderIndexes[i++];
+        if (dense) {
+          labels[orderIndex] = label;
+        } else {
+          sparseLabels.put(orderIndex, label);
+        }
+      }
+    }
+
+    String get(final int orderIndex) {
+      if (labels == null) {
+        return sparseLabels.get(orderIndex);
+      }
+      return orderIndex >= 0 && orderIndex < labels.length ? labels[orderIndex] : null;
+    }
+  }
 }
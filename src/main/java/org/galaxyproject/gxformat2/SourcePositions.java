@@ -0,0 +1,121 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the maps and lists of a parsed document are, as JSON pointers and, when recorded while
+ * parsing (see {@link DocumentParser#load(String, SourcePositions)}), the line and column of each
+ * of them and of their keys and elements. Containers are looked up by identity, a container
+ * reachable twice (YAML aliases) keeps the first place it was found at.
+ */
+public final class SourcePositions {
+  static final long UNKNOWN = -1;
+
+  private final Map<Object, Container> containers = new IdentityHashMap<>();
+
+  private static final class Container {
+    private final String pointer;
+    private final long mark;
+    // marks of the keys of a map or the indexes of a list, only filled while parsing
+    private Map<Object, Long> children;
+
+    private Container(final String pointer, final long mark) {
+      this.pointer = pointer;
+      this.mark = mark;
+    }
+  }
+
+  public SourcePositions() {}
+
+  /** Pointers, without lines and columns, of the containers of an already parsed document. */
+  static SourcePositions of(final Object root) {
+    final SourcePositions positions = new SourcePositions();
+    positions.walk(root, "");
+    return positions;
+  }
+
+  private void walk(final Object value, final String pointer) {
+    if (!(value instanceof Map || value instanceof List) || !add(value, pointer, UNKNOWN)) {
+      return;
+    }
+    if (value instanceof Map) {
+      for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        walk(entry.getValue(), child(pointer, entry.getKey()));
+      }
+    } else {
+      final List<?> list = (List<?>) value;
+      for (int i = 0; i < list.size(); i++) {
+        walk(list.get(i), child(pointer, i));
+      }
+    }
+  }
+
+  /** Record a container, false if it was found before. */
+  boolean add(final Object container, final String pointer, final long mark) {
+    if (containers.containsKey(container)) {
+      return false;
+    }
+    containers.put(container, new Container(pointer, mark));
+    return true;
+  }
+
+  /** Record where a key (or list index) of a recorded container is, a later key wins. */
+  void addChild(final Object container, final Object key, final long mark) {
+    final Container recorded = containers.get(container);
+    if (recorded.children == null) {
+      recorded.children = new HashMap<>();
+    }
+    recorded.children.put(key, mark);
+  }
+
+  void clear() {
+    containers.clear();
+  }
+
+  /** The pointer of a key (or list index, or the container itself if null), null if unknown. */
+  String pointer(final Object container, final Object key) {
+    final Container recorded = container == null ? null : containers.get(container);
+    if (recorded == null) {
+      return null;
+    }
+    return key == null ? recorded.pointer : child(recorded.pointer, key);
+  }
+
+  /**
+   * The mark of a key (or list index, or the container itself if null), the container's if the key
+   * is absent, {@link #UNKNOWN} if not recorded.
+   */
+  long mark(final Object container, final Object key) {
+    final Container recorded = container == null ? null : containers.get(container);
+    if (recorded == null) {
+      return UNKNOWN;
+    }
+    final Long childMark =
+        key == null || recorded.children == null ? null : recorded.children.get(key);
+    return childMark != null ? childMark : recorded.mark;
+  }
+
+  /** Pack a 1-based line and column. */
+  static long mark(final int line, final int column) {
+    return ((long) line << 32) | (column & 0xFFFFFFFFL);
+  }
+
+  static int line(final long mark) {
+    return mark == UNKNOWN ? -1 : (int) (mark >>> 32);
+  }
+
+  static int column(final long mark) {
+    return mark == UNKNOWN ? -1 : (int) mark;
+  }
+
+  static String child(final String pointer, final Object key) {
+    final String token = String.valueOf(key);
+    if (token.indexOf('~') < 0 && token.indexOf('/') < 0) {
+      return pointer + "/" + token;
+    }
+    return pointer + "/" + token.replace("~", "~0").replace("/", "~1");
+  }
+}
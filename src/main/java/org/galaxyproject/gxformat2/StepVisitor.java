@@ -0,0 +1,15 @@
+package org.galaxyproject.gxformat2;
+
+/**
+ * Receives the workflows and steps of a {@link WorkflowTraversal}. The steps of an embedded
+ * subworkflow are visited between {@link #enterStep} and {@link #exitStep} of the step running it.
+ */
+public interface StepVisitor {
+  default void enterWorkflow(WorkflowTraversal.Level level) {}
+
+  default void enterStep(WorkflowTraversal.Level level, int step) {}
+
+  default void exitStep(WorkflowTraversal.Level level, int step) {}
+
+  default void exitWorkflow(WorkflowTraversal.Level level) {}
+}
@@ -7,11 +7,68 @@ import java.util.Map;
 public interface WorkflowAdapter {
   List<NormalizedStep> normalizedSteps();
 
+  /** Normalize the steps and index them as a graph, each call builds a new graph. */
+  default WorkflowGraph graph() {
+    return WorkflowGraph.of(normalizedSteps());
+  }
+
+  static WorkflowAdapter forWorkflow(final Map<String, Object> workflow) {
+    final String wfClass = (String) workflow.get("class");
+    if (wfClass == null) {
+      return new NativeWorkflowAdapter(workflow);
+    } else {
+      return new Format2WorkflowAdapter(workflow);
+    }
+  }
+
   class NormalizedStep {
     Map<String, Object> stepDefinition;
     List<Input> inputs;
     String label;
     String doc;
+    Map<String, Object> position;
+
+    public Map<String, Object> getStepDefinition() {
+      return stepDefinition;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    public String getDoc() {
+      return doc;
+    }
+
+    /** The step's {@code position}, or a made up one based on its order if it has none. */
+    public Map<String, Object> getPosition() {
+      return position;
+    }
+
+    /** The step definition ID, falling back to the label when the step has no ID. */
+    public String getId() {
+      final Object id = stepDefinition.get("id");
+      return id != null ? id.toString() : label;
+    }
+
+    public String getType() {
+      final Object type = stepDefinition.get("type");
+      return type != null ? (String) type : "tool";
+    }
+
+    /** The embedded workflow run by a subworkflow step, if there is one. */
+    public Map<String, Object> getSubworkflow() {
+      final Object subworkflow = stepDefinition.get("subworkflow");
+      if (subworkflow instanceof Map) {
+        return (Map<String, Object>) subworkflow;
+      }
+      // Format 2 embeds subworkflows under run
+      final Object run = stepDefinition.get("run");
+      if (run instanceof Map) {
+        return (Map<String, Object>) run;
+      }
+      return null;
+    }
   }
 
   class Input {
@@ -20,12 +77,17 @@ public interface WorkflowAdapter {
     String inputName;
   }
 
-  default void ensurePosition(final Map<String, Object> step, final int orderIndex) {
-    if (!step.containsKey("position")) {
-      Map<String, Integer> position = new HashMap();
-      position.put("left", 10 * orderIndex);
-      position.put("top", 10 * orderIndex);
-      step.put("position", position);
+  /**
+   * The step's position, made up from its order if it has none. The step itself is left as is,
+   * adapters don't modify the workflow they are given so a parsed document can be shared.
+   */
+  static Map<String, Object> position(final Map<String, Object> step, final int orderIndex) {
+    if (step.containsKey("position")) {
+      return (Map<String, Object>) step.get("position");
     }
+    final Map<String, Object> defaultPosition = new HashMap<>();
+    defaultPosition.put("left", 10 * orderIndex);
+    defaultPosition.put("top", 10 * orderIndex);
+    return defaultPosition;
   }
 }
@@ -0,0 +1,118 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Structural numbers of a workflow's step graph (not including subworkflows), for capacity
+ * planning: depth of each step, the critical path, how many steps could run at once and how
+ * connections fan in and out. Computed in time linear in the number of steps and connections.
+ *
+ * <p>Fan-in and fan-out count distinct source and target steps, several connections between the
+ * same two steps count once and connections of a step to itself don't count.
+ */
+public final class WorkflowAnalytics {
+  private final WorkflowGraph graph;
+  private final int[] depths;
+  private final int[] fanIn;
+  private final int[] fanOut;
+  private final int criticalPathLength;
+  private final int maxParallelWidth;
+
+  private WorkflowAnalytics(final WorkflowGraph graph) {
+    this.graph = graph;
+    final int size = graph.size();
+    depths = graph.depths();
+    fanIn = new int[size];
+    fanOut = new int[size];
+    // last step a source was counted for, saves clearing a set per step
+    final int[] countedFor = new int[size];
+    for (int step = 0; step < size; step++) {
+      for (int edge = graph.inputStart(step); edge < graph.inputEnd(step); edge++) {
+        final int source = graph.edgeSource(edge);
+        if (source >= 0 && source != step && countedFor[source] != step + 1) {
+          countedFor[source] = step + 1;
+          fanIn[step]++;
+          fanOut[source]++;
+        }
+      }
+    }
+    final int[] width = new int[size + 1];
+    int maxDepth = -1;
+    int maxWidth = 0;
+    for (int step = 0; step < size; step++) {
+      maxDepth = Math.max(maxDepth, depths[step]);
+      maxWidth = Math.max(maxWidth, ++width[depths[step]]);
+    }
+    criticalPathLength = maxDepth + 1;
+    maxParallelWidth = maxWidth;
+  }
+
+  public static WorkflowAnalytics of(final WorkflowGraph graph) {
+    return new WorkflowAnalytics(graph);
+  }
+
+  public static WorkflowAnalytics of(final Map<String, Object> workflow) {
+    return of(WorkflowAdapter.forWorkflow(workflow).graph());
+  }
+
+  public int getStepCount() {
+    return graph.size();
+  }
+
+  /** Number of steps on the longest chain of connected steps, 0 for a workflow without steps. */
+  public int getCriticalPathLength() {
+    return criticalPathLength;
+  }
+
+  /** Largest number of steps at the same depth, i.e. that don't depend on each other. */
+  public int getMaxParallelWidth() {
+    return maxParallelWidth;
+  }
+
+  /** Depth of each step by Cytoscape node ID, 0 for steps without inputs. */
+  public Map<String, Integer> getDepths() {
+    final Map<String, Integer> byId = new LinkedHashMap<>();
+    for (int step = 0; step < depths.length; step++) {
+      byId.putIfAbsent(graph.id(step), depths[step]);
+    }
+    return byId;
+  }
+
+  /** Number of steps by number of distinct source steps, in increasing fan-in. */
+  public Map<Integer, Integer> getFanInDistribution() {
+    return distribution(fanIn);
+  }
+
+  /** Number of steps by number of distinct target steps, in increasing fan-out. */
+  public Map<Integer, Integer> getFanOutDistribution() {
+    return distribution(fanOut);
+  }
+
+  public int depth(final int step) {
+    return depths[step];
+  }
+
+  public int fanIn(final int step) {
+    return fanIn[step];
+  }
+
+  public int fanOut(final int step) {
+    return fanOut[step];
+  }
+
+  // counting sort rather than a sorted map, degrees are below the number of steps
+  private static Map<Integer, Integer> distribution(final int[] degrees) {
+    final int[] counts = new int[degrees.length + 1];
+    for (final int degree : degrees) {
+      counts[degree]++;
+    }
+    final Map<Integer, Integer> distribution = new LinkedHashMap<>();
+    for (int degree = 0; degree < counts.length; degree++) {
+      if (counts[degree] > 0) {
+        distribution.put(degree, counts[degree]);
+      }
+    }
+    return distribution;
+  }
+}
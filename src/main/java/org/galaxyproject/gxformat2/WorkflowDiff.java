@@ -0,0 +1,300 @@
+package org.galaxyproject.gxformat2;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+
+/**
+ * Step and connection level differences between two versions of a workflow (not descending into
+ * subworkflows, a changed subworkflow is a changed step).
+ *
+ * <p>Steps are matched by {@code uuid}, then by explicit label, then by tool ID in step order.
+ * Matched steps are compared by a hash of their definition, leaving out the keys that only say
+ * where a step is ({@link #IGNORED_KEYS}) and the order of map keys, so renumbered or moved steps
+ * and reordered exports are not changes. Connections are compared through the step matching. Step
+ * hashes are cached per step definition instance of a graph, diffing a cached graph of a version
+ * again (see {@link #compare(WorkflowGraph, WorkflowGraph)}) only hashes the steps of the other
+ * version; {@link #compare(Map, Map)} builds both graphs each time.
+ *
+ * <p>Step IDs in the result are the Cytoscape node IDs of each version.
+ */
+public final class WorkflowDiff {
+  /** Step definition keys not compared, connections are compared as edges. */
+  public static final Set<String> IGNORED_KEYS =
+      Set.of("id", "uuid", "position", "input_connections", "in");
+
+  private static final Cache<Map<String, Object>, HashCode> STEP_HASHES =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private final List<String> addedSteps = new ArrayList<>();
+  private final List<String> removedSteps = new ArrayList<>();
+  private final List<ChangedStep> changedSteps = new ArrayList<>();
+  private final List<Edge> addedEdges = new ArrayList<>();
+  private final List<Edge> removedEdges = new ArrayList<>();
+
+  private WorkflowDiff() {}
+
+  public static WorkflowDiff compare(
+      final Map<String, Object> before, final Map<String, Object> after) {
+    return compare(
+        WorkflowAdapter.forWorkflow(before).graph(), WorkflowAdapter.forWorkflow(after).graph());
+  }
+
+  public static WorkflowDiff compare(final WorkflowGraph before, final WorkflowGraph after) {
+    final WorkflowDiff diff = new WorkflowDiff();
+    final int[] match = new int[after.size()];
+    Arrays.fill(match, -1);
+    final boolean[] matched = new boolean[before.size()];
+    matchBy(before, after, match, matched, (graph, step) -> stringValue(graph, step, "uuid"));
+    matchBy(before, after, match, matched, (graph, step) -> stringValue(graph, step, "label"));
+    matchBy(before, after, match, matched, WorkflowGraph::toolId);
+
+    for (int step = 0; step < before.size(); step++) {
+      if (!matched[step]) {
+        diff.removedSteps.add(before.id(step));
+      }
+    }
+    for (int step = 0; step < after.size(); step++) {
+      if (match[step] < 0) {
+        diff.addedSteps.add(after.id(step));
+        continue;
+      }
+      final Map<String, Object> beforeStep = before.step(match[step]).getStepDefinition();
+      final Map<String, Object> afterStep = after.step(step).getStepDefinition();
+      if (!hash(beforeStep).equals(hash(afterStep))) {
+        final List<String> changedKeys = changedKeys(beforeStep, afterStep);
+        // only a change if a value differs, not just how the hash saw it
+        if (!changedKeys.isEmpty()) {
+          diff.changedSteps.add(
+              new ChangedStep(before.id(match[step]), after.id(step), changedKeys));
+        }
+      }
+    }
+
+    // edges keyed by the before step index of both ends, after steps without a match get indexes
+    // past the before steps
+    final Map<List<Object>, Integer> beforeEdges = new HashMap<>();
+    for (int edge = 0; edge < before.edgeCount(); edge++) {
+      if (before.edgeSource(edge) >= 0) {
+        beforeEdges.putIfAbsent(
+            edgeKey(before, edge, before.edgeSource(edge), before.edgeTarget(edge)), edge);
+      }
+    }
+    final Set<List<Object>> afterEdges = new HashSet<>();
+    for (int edge = 0; edge < after.edgeCount(); edge++) {
+      final int source = after.edgeSource(edge);
+      if (source < 0) {
+        continue;
+      }
+      final int target = after.edgeTarget(edge);
+      final List<Object> key =
+          edgeKey(
+              after, edge, beforeIndex(match, before, source), beforeIndex(match, before, target));
+      afterEdges.add(key);
+      if (!beforeEdges.containsKey(key)) {
+        diff.addedEdges.add(Edge.of(after, edge));
+      }
+    }
+    beforeEdges.forEach(
+        (key, edge) -> {
+          if (!afterEdges.contains(key)) {
+            diff.removedEdges.add(Edge.of(before, edge));
+          }
+        });
+    diff.removedEdges.sort(Edge.ORDER);
+    return diff;
+  }
+
+  private static void matchBy(
+      final WorkflowGraph before,
+      final WorkflowGraph after,
+      final int[] match,
+      final boolean[] matched,
+      final BiFunction<WorkflowGraph, Integer, String> key) {
+    final Map<String, ArrayDeque<Integer>> candidates = new HashMap<>();
+    for (int step = 0; step < before.size(); step++) {
+      final String value = matched[step] ? null : key.apply(before, step);
+      if (value != null) {
+        candidates.computeIfAbsent(value, k -> new ArrayDeque<>()).add(step);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return;
+    }
+    for (int step = 0; step < after.size(); step++) {
+      final String value = match[step] >= 0 ? null : key.apply(after, step);
+      final ArrayDeque<Integer> steps = value == null ? null : candidates.get(value);
+      if (steps != null && !steps.isEmpty()) {
+        match[step] = steps.poll();
+        matched[match[step]] = true;
+      }
+    }
+  }
+
+  private static String stringValue(final WorkflowGraph graph, final int step, final String key) {
+    final Object value = graph.step(step).getStepDefinition().get(key);
+    return value == null ? null : value.toString();
+  }
+
+  private static int beforeIndex(final int[] match, final WorkflowGraph before, final int step) {
+    return match[step] >= 0 ? match[step] : before.size() + step;
+  }
+
+  private static List<Object> edgeKey(
+      final WorkflowGraph graph, final int edge, final int source, final int target) {
+    return Arrays.asList(source, graph.edgeOutputName(edge), target, graph.edgeInputName(edge));
+  }
+
+  static HashCode hash(final Map<String, Object> step) {
+    return STEP_HASHES
+        .asMap()
+        .computeIfAbsent(
+            step,
+            definition -> {
+              // keys sorted, an export reordering keys is not a change
+              final Hasher hasher = ContentHash.newHasher();
+              for (final String key : new TreeSet<>(definition.keySet())) {
+                if (!IGNORED_KEYS.contains(key)) {
+                  ContentHash.put(hasher, key);
+                  ContentHash.putUnordered(hasher, definition.get(key));
+                }
+              }
+              return hasher.hash();
+            });
+  }
+
+  private static List<String> changedKeys(
+      final Map<String, Object> before, final Map<String, Object> after) {
+    final Set<String> keys = new TreeSet<>(before.keySet());
+    keys.addAll(after.keySet());
+    keys.removeAll(IGNORED_KEYS);
+    final List<String> changed = new ArrayList<>();
+    for (final String key : keys) {
+      if (!Objects.equals(before.get(key), after.get(key))) {
+        changed.add(key);
+      }
+    }
+    return changed;
+  }
+
+  public boolean isEmpty() {
+    return addedSteps.isEmpty()
+        && removedSteps.isEmpty()
+        && changedSteps.isEmpty()
+        && addedEdges.isEmpty()
+        && removedEdges.isEmpty();
+  }
+
+  /** IDs of steps only in the later version. */
+  public List<String> getAddedSteps() {
+    return Collections.unmodifiableList(addedSteps);
+  }
+
+  /** IDs of steps only in the earlier version. */
+  public List<String> getRemovedSteps() {
+    return Collections.unmodifiableList(removedSteps);
+  }
+
+  public List<ChangedStep> getChangedSteps() {
+    return Collections.unmodifiableList(changedSteps);
+  }
+
+  /** Connections only in the later version, in its step order. */
+  public List<Edge> getAddedEdges() {
+    return Collections.unmodifiableList(addedEdges);
+  }
+
+  /** Connections only in the earlier version, in its step order. */
+  public List<Edge> getRemovedEdges() {
+    return Collections.unmodifiableList(removedEdges);
+  }
+
+  /** A step in both versions whose definition differs. */
+  public static final class ChangedStep {
+    private final String beforeId;
+    private final String afterId;
+    private final List<String> changedKeys;
+
+    ChangedStep(final String beforeId, final String afterId, final List<String> changedKeys) {
+      this.beforeId = beforeId;
+      this.afterId = afterId;
+      this.changedKeys = Collections.unmodifiableList(changedKeys);
+    }
+
+    public String getBeforeId() {
+      return beforeId;
+    }
+
+    public String getAfterId() {
+      return afterId;
+    }
+
+    /** Top-level step definition keys whose values differ. */
+    public List<String> getChangedKeys() {
+      return changedKeys;
+    }
+  }
+
+  /** A connection, with step IDs of the version it is in. */
+  public static final class Edge {
+    private static final Comparator<Edge> ORDER = Comparator.comparingInt(edge -> edge.index);
+
+    private final int index;
+    private final String source;
+    private final String target;
+    private final String input;
+    private final String output;
+
+    private Edge(
+        final int index,
+        final String source,
+        final String target,
+        final String input,
+        final String output) {
+      this.index = index;
+      this.source = source;
+      this.target = target;
+      this.input = input;
+      this.output = output;
+    }
+
+    static Edge of(final WorkflowGraph graph, final int edge) {
+      return new Edge(
+          edge,
+          graph.id(graph.edgeSource(edge)),
+          graph.id(graph.edgeTarget(edge)),
+          graph.edgeInputName(edge),
+          graph.edgeOutputName(edge));
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    public String getInput() {
+      return input;
+    }
+
+    public String getOutput() {
+      return output;
+    }
+  }
+}
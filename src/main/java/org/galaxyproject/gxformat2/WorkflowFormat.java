@@ -0,0 +1,114 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Classifies a workflow document as native (.ga) or Format 2 from its top-level keys without
+ * parsing all of it.
+ *
+ * <p>Only a bounded prefix of the document is tokenized and scanning stops at the first telling key
+ * ({@code class}, {@code a_galaxy_workflow} or {@code format-version}). The document is only parsed
+ * in full when the prefix is ambiguous, in which case the classification matches {@link
+ * Lint#lint(Map)}: any mapping without {@code class: GalaxyWorkflow} is a native workflow.
+ *
+ * <p>A document detected from its marker may still turn out to be malformed after it, where a full
+ * parse would have failed and found no format. The confidence of the detection says which it was.
+ */
+public final class WorkflowFormat {
+  public static final int DEFAULT_PREFIX_LENGTH = 16 * 1024;
+  /** Confidence of a format found from a marker, without reading the rest of the document. */
+  public static final double MARKER_CONFIDENCE = 0.9;
+
+  private static final Set<String> FORMAT_KEYS =
+      Set.of("class", "a_galaxy_workflow", "format-version");
+
+  public enum Format {
+    NATIVE,
+    FORMAT2
+  }
+
+  /** Detected format, null if the document isn't a workflow, and how sure the detection is. */
+  public static final class Detection {
+    private final Format format;
+    private final double confidence;
+
+    Detection(final Format format, final double confidence) {
+      this.format = format;
+      this.confidence = confidence;
+    }
+
+    public Format getFormat() {
+      return format;
+    }
+
+    /**
+     * 1.0 when the document was parsed in full, or isn't a mapping from its first token on. {@link
+     * #MARKER_CONFIDENCE} when the format was found from a marker and the document after it wasn't
+     * read, 0.5 for a complete mapping without any marker.
+     */
+    public double getConfidence() {
+      return confidence;
+    }
+  }
+
+  private WorkflowFormat() {}
+
+  public static Detection detect(final String content) {
+    return detect(content, DEFAULT_PREFIX_LENGTH, c -> DocumentParser.loadAs(c, Map.class));
+  }
+
+  /**
+   * @param prefixLength number of characters to look at before falling back to a full parse
+   * @param parser full parse used for ambiguous prefixes, e.g. a caching one
+   */
+  public static Detection detect(
+      final String content,
+      final int prefixLength,
+      final Function<String, Map<String, Object>> parser) {
+    if (content == null) {
+      return new Detection(null, 1.0);
+    }
+    final boolean truncated = content.length() > prefixLength;
+    final String prefix = truncated ? prefix(content, prefixLength) : content;
+    final DocumentProjection.Scan scan = DocumentProjection.scan(prefix, FORMAT_KEYS, 1);
+    if (!scan.mapping) {
+      return new Detection(null, 1.0);
+    }
+    // scanning stops at the marker, the rest of the document may still turn out to be malformed
+    if (scan.found.containsKey("class")) {
+      return new Detection(formatForClass(scan.found.get("class")), MARKER_CONFIDENCE);
+    } else if (!scan.found.isEmpty()) {
+      return new Detection(Format.NATIVE, MARKER_CONFIDENCE);
+    } else if (!truncated && scan.error == null) {
+      // a complete mapping without any format marker, native by elimination
+      return new Detection(Format.NATIVE, 0.5);
+    } else if (!truncated) {
+      return new Detection(null, 1.0);
+    }
+    try {
+      final Map<String, Object> workflow = parser.apply(content);
+      if (workflow == null) {
+        return new Detection(null, 1.0);
+      }
+      return new Detection(formatForClass(workflow.get("class")), 1.0);
+    } catch (RuntimeException e) {
+      return new Detection(null, 1.0);
+    }
+  }
+
+  private static Format formatForClass(final Object wfClass) {
+    if (wfClass != null && !(wfClass instanceof String)) {
+      // not something Lint or the plugin know how to read
+      return null;
+    }
+    return "GalaxyWorkflow".equals(wfClass) ? Format.FORMAT2 : Format.NATIVE;
+  }
+
+  // Cut at a line break so the last scalar in the prefix isn't cut in half.
+  private static String prefix(final String content, final int prefixLength) {
+    final int lineEnd = content.lastIndexOf('\n', prefixLength);
+    return content.substring(0, lineEnd > 0 ? lineEnd + 1 : prefixLength);
+  }
+}
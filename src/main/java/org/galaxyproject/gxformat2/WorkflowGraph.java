@@ -0,0 +1,254 @@
+package org.galaxyproject.gxformat2;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, read-only form of the step graph of one workflow (not including its subworkflows).
+ *
+ * <p>Steps are numbered {@code 0..size()-1} in {@link WorkflowAdapter#normalizedSteps()} order.
+ * Connections are edges numbered so that the edges into step {@code s} are {@code
+ * inputStart(s)..inputEnd(s)-1}, with sources, input and output names kept in parallel arrays
+ * (compressed sparse rows). Edges out of each step are indexed the same way. Step IDs, labels, tool
+ * IDs and types are interned since they repeat a lot across steps and versions.
+ *
+ * <p>A connection refers to its source by (explicit) label or by ID, a label match wins over an ID
+ * match and the first step in step order wins among steps sharing a label or ID. Edges whose source
+ * can't be found have source {@code -1} and aren't indexed as outputs of any step.
+ */
+public final class WorkflowGraph {
+  private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+  private final List<WorkflowAdapter.NormalizedStep> steps;
+  private final String[] ids;
+  private final String[] labels;
+  private final String[] toolIds;
+  private final String[] types;
+  private final Map<String, Integer> indexByLabel = new HashMap<>();
+  private final Map<String, Integer> indexById = new HashMap<>();
+
+  private final int[] inputOffsets;
+  private final int[] edgeSources;
+  private final int[] edgeTargets;
+  private final String[] edgeSourceReferences;
+  private final String[] edgeInputNames;
+  private final String[] edgeOutputNames;
+  private final int[] outputOffsets;
+  private final int[] outputEdges;
+
+  private WorkflowGraph(final List<WorkflowAdapter.NormalizedStep> steps) {
+    this.steps = steps;
+    final int size = steps.size();
+    ids = new String[size];
+    labels = new String[size];
+    toolIds = new String[size];
+    types = new String[size];
+    inputOffsets = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      final WorkflowAdapter.NormalizedStep step = steps.get(i);
+      ids[i] = intern(step.getId());
+      labels[i] = intern(step.getLabel());
+      // exports can have numeric tool IDs
+      toolIds[i] = intern(toolId(step.getStepDefinition()));
+      types[i] = intern(step.getType());
+      // only explicit labels, not the ones adapters make up for unlabelled steps
+      final Object explicitLabel = step.getStepDefinition().get("label");
+      if (explicitLabel != null) {
+        indexByLabel.putIfAbsent(intern(explicitLabel.toString()), i);
+      }
+      if (ids[i] != null) {
+        indexById.putIfAbsent(ids[i], i);
+      }
+      inputOffsets[i + 1] = inputOffsets[i] + step.inputs.size();
+    }
+
+    final int edgeCount = inputOffsets[size];
+    edgeSources = new int[edgeCount];
+    edgeTargets = new int[edgeCount];
+    edgeSourceReferences = new String[edgeCount];
+    edgeInputNames = new String[edgeCount];
+    edgeOutputNames = new String[edgeCount];
+    outputOffsets = new int[size + 1];
+    int edge = 0;
+    for (int i = 0; i < size; i++) {
+      for (final WorkflowAdapter.Input input : steps.get(i).inputs) {
+        final int source = input.sourceStepLabel == null ? -1 : indexOf(input.sourceStepLabel);
+        edgeSources[edge] = source;
+        edgeTargets[edge] = i;
+        edgeSourceReferences[edge] = intern(input.sourceStepLabel);
+        edgeInputNames[edge] = intern(input.inputName);
+        edgeOutputNames[edge] = intern(input.sourceOutputName);
+        if (source >= 0) {
+          outputOffsets[source + 1]++;
+        }
+        edge++;
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      outputOffsets[i + 1] += outputOffsets[i];
+    }
+    outputEdges = new int[outputOffsets[size]];
+    final int[] filled = new int[size];
+    for (edge = 0; edge < edgeCount; edge++) {
+      final int source = edgeSources[edge];
+      if (source >= 0) {
+        outputEdges[outputOffsets[source] + filled[source]++] = edge;
+      }
+    }
+  }
+
+  public static WorkflowGraph of(final List<WorkflowAdapter.NormalizedStep> steps) {
+    return new WorkflowGraph(steps);
+  }
+
+  private static String intern(final String value) {
+    return value == null ? null : STRINGS.intern(value);
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public WorkflowAdapter.NormalizedStep step(final int step) {
+    return steps.get(step);
+  }
+
+  public String id(final int step) {
+    return ids[step];
+  }
+
+  public String label(final int step) {
+    return labels[step];
+  }
+
+  public String toolId(final int step) {
+    return toolIds[step];
+  }
+
+  /** The {@code tool_id} of a step definition as a string, null if it has none. */
+  static String toolId(final Map<String, Object> stepDefinition) {
+    final Object toolId = stepDefinition.get("tool_id");
+    return toolId == null ? null : toolId.toString();
+  }
+
+  public String type(final int step) {
+    return types[step];
+  }
+
+  /** The step a connection or state key refers to by label or ID, -1 if there is none. */
+  public int indexOf(final String labelOrId) {
+    final Integer step = indexByLabel.get(labelOrId);
+    if (step != null) {
+      return step;
+    }
+    return indexOfId(labelOrId);
+  }
+
+  /** The first step with this ID, -1 if there is none. */
+  public int indexOfId(final String id) {
+    final Integer step = indexById.get(id);
+    return step != null ? step : -1;
+  }
+
+  /**
+   * Length of the longest path of connections from a step without inputs to each step, in one
+   * topological pass. Cycles are broken at their first step in step order, which is then placed
+   * after the steps it can be reached from outside the cycle.
+   */
+  public int[] depths() {
+    final int size = size();
+    final int[] depth = new int[size];
+    final int[] pending = new int[size];
+    for (int step = 0; step < size; step++) {
+      for (int edge = inputStart(step); edge < inputEnd(step); edge++) {
+        final int source = edgeSource(edge);
+        if (source >= 0 && source != step) {
+          pending[step]++;
+        }
+      }
+    }
+    final boolean[] placed = new boolean[size];
+    final int[] queue = new int[size];
+    int head = 0;
+    int tail = 0;
+    for (int step = 0; step < size; step++) {
+      if (pending[step] == 0) {
+        queue[tail++] = step;
+      }
+    }
+    int next = 0;
+    while (head < size) {
+      if (head == tail) {
+        // only cycles left, break one at the first unplaced step
+        while (placed[next] || pending[next] == 0) {
+          next++;
+        }
+        pending[next] = 0;
+        queue[tail++] = next;
+      }
+      final int step = queue[head++];
+      placed[step] = true;
+      for (int i = 0; i < outputCount(step); i++) {
+        final int target = edgeTarget(outputEdge(step, i));
+        if (target == step || placed[target]) {
+          continue;
+        }
+        depth[target] = Math.max(depth[target], depth[step] + 1);
+        if (--pending[target] == 0) {
+          queue[tail++] = target;
+        }
+      }
+    }
+    return depth;
+  }
+
+  public int edgeCount() {
+    return edgeSources.length;
+  }
+
+  /** First edge into the step. */
+  public int inputStart(final int step) {
+    return inputOffsets[step];
+  }
+
+  /** One past the last edge into the step. */
+  public int inputEnd(final int step) {
+    return inputOffsets[step + 1];
+  }
+
+  /** Number of edges out of the step. */
+  public int outputCount(final int step) {
+    return outputOffsets[step + 1] - outputOffsets[step];
+  }
+
+  /** The {@code i}th edge out of the step, in target step order. */
+  public int outputEdge(final int step, final int i) {
+    return outputEdges[outputOffsets[step] + i];
+  }
+
+  /** Source step of the edge, -1 if the connection refers to a step that doesn't exist. */
+  public int edgeSource(final int edge) {
+    return edgeSources[edge];
+  }
+
+  public int edgeTarget(final int edge) {
+    return edgeTargets[edge];
+  }
+
+  /** The label or ID the connection used to refer to its source. */
+  public String edgeSourceReference(final int edge) {
+    return edgeSourceReferences[edge];
+  }
+
+  public String edgeInputName(final int edge) {
+    return edgeInputNames[edge];
+  }
+
+  /** Name of the source output, null for the default output. */
+  public String edgeOutputName(final int edge) {
+    return edgeOutputNames[edge];
+  }
+}
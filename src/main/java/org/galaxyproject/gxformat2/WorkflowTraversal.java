@@ -0,0 +1,100 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Walks a workflow and its embedded subworkflows once, in step order, for several {@link
+ * StepVisitor}s at a time. Each workflow is normalized and indexed as a {@link WorkflowGraph} once
+ * and the visitors share that graph, instead of each walking the workflow on its own.
+ *
+ * <p>A workflow that embeds itself (through YAML aliases) is not entered again. Building the graph
+ * of a malformed workflow throws, as {@link WorkflowAdapter#graph()} does.
+ */
+public final class WorkflowTraversal {
+
+  private WorkflowTraversal() {}
+
+  /** A workflow being visited, the top-level one or a subworkflow of the step of its parent. */
+  public static final class Level {
+    private final Map<String, Object> workflow;
+    private final WorkflowGraph graph;
+    private final Level parent;
+    private final int parentStep;
+    private final String idPrefix;
+
+    private Level(
+        final Map<String, Object> workflow,
+        final Level parent,
+        final int parentStep,
+        final String idPrefix) {
+      this.workflow = workflow;
+      this.graph = WorkflowAdapter.forWorkflow(workflow).graph();
+      this.parent = parent;
+      this.parentStep = parentStep;
+      this.idPrefix = idPrefix;
+    }
+
+    public Map<String, Object> getWorkflow() {
+      return workflow;
+    }
+
+    public WorkflowGraph getGraph() {
+      return graph;
+    }
+
+    /** The enclosing workflow, null at the top level. */
+    public Level getParent() {
+      return parent;
+    }
+
+    /** The step of the parent running this workflow, -1 at the top level. */
+    public int getParentStep() {
+      return parentStep;
+    }
+
+    /** IDs of the steps leading here, each followed by {@code /}, empty at the top level. */
+    public String getIdPrefix() {
+      return idPrefix;
+    }
+  }
+
+  public static void traverse(
+      final Map<String, Object> workflow, final List<? extends StepVisitor> visitors) {
+    final Set<Map<String, Object>> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+    visit(new Level(workflow, null, -1, ""), visitors, visiting);
+  }
+
+  private static void visit(
+      final Level level,
+      final List<? extends StepVisitor> visitors,
+      final Set<Map<String, Object>> visiting) {
+    visiting.add(level.workflow);
+    for (final StepVisitor visitor : visitors) {
+      visitor.enterWorkflow(level);
+    }
+    final WorkflowGraph graph = level.graph;
+    for (int step = 0; step < graph.size(); step++) {
+      for (final StepVisitor visitor : visitors) {
+        visitor.enterStep(level, step);
+      }
+      final Map<String, Object> subworkflow = graph.step(step).getSubworkflow();
+      if (subworkflow != null && !visiting.contains(subworkflow)) {
+        visit(
+            new Level(subworkflow, level, step, level.idPrefix + graph.id(step) + "/"),
+            visitors,
+            visiting);
+      }
+      for (final StepVisitor visitor : visitors) {
+        visitor.exitStep(level, step);
+      }
+    }
+    for (final StepVisitor visitor : visitors) {
+      visitor.exitWorkflow(level);
+    }
+    visiting.remove(level.workflow);
+  }
+}
@@ -1,13 +1,12 @@
 package org.galaxyproject.gxformat2.v19_09.utils;
 
 import java.util.Map;
-import org.yaml.snakeyaml.Yaml;
+import org.galaxyproject.gxformat2.DocumentParser;
 
 public class YamlUtils {
 
   public static Map<String, Object> mapFromString(final String text) {
-    Yaml yaml = new Yaml();
-    final Map<String, Object> result = yaml.load(text);
+    final Map<String, Object> result = DocumentParser.load(text);
     return result;
   }
 }
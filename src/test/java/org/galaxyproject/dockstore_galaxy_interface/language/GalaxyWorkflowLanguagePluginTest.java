@@ -2,6 +2,9 @@ package org.galaxyproject.dockstore_galaxy_interface.language;
 
 import static org.junit.Assert.assertTrue;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheStats;
 import com.google.common.io.Resources;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -10,20 +13,38 @@ import io.dockstore.common.VersionTypeValidation;
 import io.dockstore.language.CompleteLanguageInterface;
 import io.dockstore.language.MinimalLanguageInterface;
 import io.dockstore.language.RecommendedLanguageInterface;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import org.apache.commons.io.FileUtils;
+import org.galaxyproject.gxformat2.WorkflowDiff;
 import org.junit.Assert;
 import org.junit.Test;
 
 public class GalaxyWorkflowLanguagePluginTest {
+  // lints fine, but a step label that isn't a string stops the traversal
+  private static final String UNTRAVERSABLE =
+      "{\"a_galaxy_workflow\": \"true\", \"format-version\": \"0.1\", \"steps\":"
+          + " {\"0\": {\"label\": 5, \"type\": \"tool\"}}}";
+
   public static final String REPO_ID_1 = "jmchilton/galaxy-workflow-dockstore-example-1";
   public static final String REPO_FORMAT_2 = "https://raw.githubusercontent.com/" + REPO_ID_1;
   public static final String REPO_ID_2 = "mvdbeek/galaxy-workflow-dockstore-example-2";
@@ -151,8 +172,296 @@ public class GalaxyWorkflowLanguagePluginTest {
     // validation error
     final Map<String, Object> cytoscapeElements =
         plugin.loadCytoscapeElements(initialPath, contents, fileMap);
-    // best we can do is error out on it
-    assertTrue(cytoscapeElements.isEmpty());
+    // the numeric tool ID is read as a string
+    Assert.assertFalse(cytoscapeElements.isEmpty());
+    assertTrue(
+        plugin.generateToolsTable(initialPath, contents, fileMap).stream()
+            .anyMatch(row -> "tool:177550".equals(row.label)));
+  }
+
+  @Test
+  public void testVersionParsedOnce() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final ResourceFileReader reader = new ResourceFileReader("invalid_report_ga");
+    final String initialPath = "missing_markdown.ga";
+    final String contents = reader.readFile(initialPath);
+    final Map<String, MinimalLanguageInterface.FileMetadata> fileMap =
+        plugin.indexWorkflowFiles(initialPath, contents, reader);
+    plugin.parseWorkflowForMetadata(initialPath, contents, fileMap);
+    plugin.validateWorkflowSet(initialPath, contents, fileMap);
+    plugin.loadCytoscapeElements(initialPath, contents, fileMap);
+    plugin.generateToolsTable(initialPath, contents, fileMap);
+    final CacheStats stats = plugin.getParsedWorkflowCacheStats();
+    Assert.assertEquals(1, stats.missCount());
+    Assert.assertEquals(2, stats.hitCount());
+  }
+
+  @Test
+  public void testMetrics() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final InMemoryPluginMetrics metrics = new InMemoryPluginMetrics();
+    plugin.setMetrics(metrics);
+    final ResourceFileReader reader = new ResourceFileReader("subworkflow");
+    final String initialPath = "subworkflow.ga";
+    final String contents = reader.readFile(initialPath);
+    plugin.validateWorkflowSet(initialPath, contents, null);
+    plugin.loadCytoscapeElements(initialPath, contents, null);
+    plugin.loadCytoscapeElements(initialPath, contents, null);
+
+    Assert.assertEquals(1, metrics.get(PluginMetrics.Operation.PARSE).getCount());
+    Assert.assertEquals(1, metrics.get(PluginMetrics.Operation.LINT).getCount());
+    Assert.assertEquals(
+        1, metrics.get(PluginMetrics.Operation.BUILD_CYTOSCAPE_ELEMENTS).getCount());
+    final InMemoryPluginMetrics.OperationStats validate =
+        metrics.get(PluginMetrics.Operation.VALIDATE_WORKFLOW_SET);
+    Assert.assertEquals(1, validate.getCount());
+    Assert.assertEquals(contents.getBytes(StandardCharsets.UTF_8).length, validate.getInputBytes());
+    Assert.assertEquals(3, validate.getSteps());
+    assertTrue(validate.getPercentileNanos(0.5) >= validate.getMaxNanos());
+    final InMemoryPluginMetrics.OperationStats cytoscape =
+        metrics.get(PluginMetrics.Operation.LOAD_CYTOSCAPE_ELEMENTS);
+    Assert.assertEquals(2, cytoscape.getCount());
+    Assert.assertEquals(0, cytoscape.getErrorCount());
+    assertTrue(cytoscape.getMaxEdges() > 0);
+
+    plugin.loadCytoscapeElements("/broken.ga", UNTRAVERSABLE, null);
+    Assert.assertEquals(
+        Long.valueOf(1), cytoscape.getErrors().get(ClassCastException.class.getName()));
+  }
+
+  @Test
+  public void testWriteCytoscapeElements() throws IOException {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final String initialPath = "missing_markdown.ga";
+    final String contents = new ResourceFileReader("invalid_report_ga").readFile(initialPath);
+    final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+    plugin.writeCytoscapeElements(initialPath, contents, streamed);
+    final byte[] serialized =
+        new ObjectMapper()
+            .writeValueAsBytes(plugin.loadCytoscapeElements(initialPath, contents, null));
+    Assert.assertArrayEquals(serialized, streamed.toByteArray());
+    final ByteArrayOutputStream cached = new ByteArrayOutputStream();
+    plugin.writeCytoscapeElements(initialPath, contents, cached);
+    Assert.assertArrayEquals(serialized, cached.toByteArray());
+  }
+
+  @Test
+  public void testToolsTableIncludesSubworkflowSteps() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final ResourceFileReader reader = new ResourceFileReader("subworkflow");
+    final String initialPath = "subworkflow.ga";
+    final String contents = reader.readFile(initialPath);
+    final List<CompleteLanguageInterface.RowData> rowData =
+        plugin.generateToolsTable(initialPath, contents, null);
+    Assert.assertEquals(6, rowData.size());
+    assertTrue(rowData.stream().anyMatch(row -> row.toolid.equals("1/2")));
+    // rows link to the Tool Shed repository of their tool, inputs have no link
+    final Map<String, CompleteLanguageInterface.RowData> byId = new HashMap<>();
+    rowData.forEach(row -> byId.put(row.toolid, row));
+    final Map<String, Object> elements = plugin.loadCytoscapeElements(initialPath, contents, null);
+    for (final Map<String, Object> node : (List<Map<String, Object>>) elements.get("nodes")) {
+      final Map<String, Object> data = (Map<String, Object>) node.get("data");
+      final CompleteLanguageInterface.RowData row = byId.get(data.get("id"));
+      if (row != null) {
+        Assert.assertEquals(data.get("repo_link"), row.link == null ? null : row.link.toString());
+      }
+    }
+    assertTrue(
+        rowData.stream()
+            .anyMatch(
+                row -> row.link != null && row.link.getHost().equals("toolshed.g2.bx.psu.edu")));
+    assertTrue(rowData.stream().anyMatch(row -> row.link == null));
+  }
+
+  @Test
+  public void testCachedCytoscapeElementsAreImmutable() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final ResourceFileReader reader = new ResourceFileReader("invalid_report_ga");
+    final String initialPath = "missing_markdown.ga";
+    final String contents = reader.readFile(initialPath);
+    final Map<String, Object> elements = plugin.loadCytoscapeElements(initialPath, contents, null);
+    final List<Object> nodes = (List<Object>) elements.get("nodes");
+    final int nodeCount = nodes.size();
+    Assert.assertThrows(UnsupportedOperationException.class, () -> nodes.remove(0));
+    Assert.assertEquals(
+        nodeCount - 2, plugin.generateToolsTable(initialPath, contents, null).size());
+    Assert.assertSame(elements, plugin.loadCytoscapeElements(initialPath, contents, null));
+    Assert.assertEquals(nodeCount, nodes.size());
+  }
+
+  @Test
+  public void testBulkValidation() throws InterruptedException {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl() {
+          @Override
+          public VersionTypeValidation validateWorkflowSet(
+              String initialPath,
+              String contents,
+              Map<String, MinimalLanguageInterface.FileMetadata> indexedFiles) {
+            if (initialPath.equals("slow.ga")) {
+              try {
+                Thread.sleep(60000);
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            }
+            return super.validateWorkflowSet(initialPath, contents, indexedFiles);
+          }
+        };
+    final ResourceFileReader reader = new ResourceFileReader("invalid_report_ga");
+    final String validContents = new ResourceFileReader("subworkflow").readFile("subworkflow.ga");
+    final List<BulkWorkflowValidator.WorkflowVersion> versions =
+        List.of(
+            new BulkWorkflowValidator.WorkflowVersion("slow.ga", validContents),
+            new BulkWorkflowValidator.WorkflowVersion(
+                "two_validation_errors.ga", reader.readFile("two_validation_errors.ga")),
+            new BulkWorkflowValidator.WorkflowVersion("subworkflow.ga", validContents),
+            new BulkWorkflowValidator.WorkflowVersion("malformed.ga", "{\"steps\": [}"));
+    final List<String> completionOrder = new ArrayList<>();
+    final Map<String, VersionTypeValidation> results = new HashMap<>();
+    try (BulkWorkflowValidator validator =
+        new BulkWorkflowValidator(plugin, 2, Duration.ofMillis(500))) {
+      validator.validate(
+          versions,
+          (version, validation) -> {
+            completionOrder.add(version.getInitialPath());
+            results.put(version.getInitialPath(), validation);
+          });
+    }
+    Assert.assertEquals(4, results.size());
+    // the slow version times out after the others are done
+    Assert.assertEquals("slow.ga", completionOrder.get(3));
+    Assert.assertFalse(results.get("slow.ga").isValid());
+    assertTrue(results.get("slow.ga").getMessage().get("slow.ga").contains("timed out"));
+    Assert.assertFalse(results.get("two_validation_errors.ga").isValid());
+    assertTrue(results.get("subworkflow.ga").isValid());
+    Assert.assertFalse(results.get("malformed.ga").isValid());
+  }
+
+  @Test
+  public void testBulkValidationHandsOffStuckVersions() throws Exception {
+    final CountDownLatch unstick = new CountDownLatch(1);
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin = stuckPlugin(unstick);
+    final String validContents = new ResourceFileReader("subworkflow").readFile("subworkflow.ga");
+    final List<BulkWorkflowValidator.WorkflowVersion> versions = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      versions.add(new BulkWorkflowValidator.WorkflowVersion("stuck" + i + ".ga", validContents));
+    }
+    for (int i = 0; i < 4; i++) {
+      versions.add(new BulkWorkflowValidator.WorkflowVersion("fast" + i + ".ga", validContents));
+    }
+    try (BulkWorkflowValidator validator =
+        new BulkWorkflowValidator(plugin, 2, Duration.ofMillis(200))) {
+      final List<CompletableFuture<VersionTypeValidation>> results = validator.submit(versions);
+      // four stuck versions on two workers: two timeouts in a row, then the fast ones
+      for (int i = 4; i < 8; i++) {
+        assertTrue(results.get(i).get(5, TimeUnit.SECONDS).isValid());
+      }
+      for (int i = 0; i < 4; i++) {
+        Assert.assertFalse(results.get(i).join().isValid());
+      }
+    } finally {
+      unstick.countDown();
+    }
+  }
+
+  @Test
+  public void testBulkValidationBoundsStuckWorkers() throws Exception {
+    final CountDownLatch unstick = new CountDownLatch(1);
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin = stuckPlugin(unstick);
+    final String validContents = new ResourceFileReader("subworkflow").readFile("subworkflow.ga");
+    final List<BulkWorkflowValidator.WorkflowVersion> versions =
+        List.of(
+            new BulkWorkflowValidator.WorkflowVersion("stuck0.ga", validContents),
+            new BulkWorkflowValidator.WorkflowVersion("stuck1.ga", validContents),
+            new BulkWorkflowValidator.WorkflowVersion("fast0.ga", validContents));
+    try (BulkWorkflowValidator validator =
+        new BulkWorkflowValidator(plugin, 1, Duration.ofMillis(200), 0, 1)) {
+      final List<CompletableFuture<VersionTypeValidation>> results = validator.submit(versions);
+      assertTrue(
+          results
+              .get(0)
+              .get(5, TimeUnit.SECONDS)
+              .getMessage()
+              .get("stuck0.ga")
+              .contains("timed out"));
+      // the one stuck worker allowed is left, the others aren't started
+      for (int i = 1; i < 3; i++) {
+        final String path = versions.get(i).getInitialPath();
+        assertTrue(
+            results.get(i).get(5, TimeUnit.SECONDS).getMessage().get(path).contains("not started"));
+      }
+    } finally {
+      unstick.countDown();
+    }
+  }
+
+  @Test
+  public void testBulkValidatorClose() throws Exception {
+    final CountDownLatch unstick = new CountDownLatch(1);
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin = stuckPlugin(unstick);
+    final String validContents = new ResourceFileReader("subworkflow").readFile("subworkflow.ga");
+    final List<BulkWorkflowValidator.WorkflowVersion> versions =
+        List.of(
+            new BulkWorkflowValidator.WorkflowVersion("stuck0.ga", validContents),
+            new BulkWorkflowValidator.WorkflowVersion("queued.ga", validContents));
+    final Map<String, VersionTypeValidation> results = new ConcurrentHashMap<>();
+    final BulkWorkflowValidator validator =
+        new BulkWorkflowValidator(plugin, 1, Duration.ofMinutes(1));
+    final Thread validating =
+        new Thread(
+            () -> {
+              try {
+                validator.validate(
+                    versions,
+                    (version, validation) -> results.put(version.getInitialPath(), validation));
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    try {
+      validating.start();
+      Thread.sleep(100);
+      validator.close();
+      validating.join(5000);
+      // reported, not cancelled
+      Assert.assertEquals(2, results.size());
+      for (final Map.Entry<String, VersionTypeValidation> result : results.entrySet()) {
+        Assert.assertFalse(result.getValue().isValid());
+        Assert.assertEquals(
+            "validator closed", result.getValue().getMessage().get(result.getKey()));
+      }
+      Assert.assertThrows(IllegalStateException.class, () -> validator.submit(versions));
+    } finally {
+      unstick.countDown();
+    }
+  }
+
+  // Stuck on versions named stuck*, ignoring interrupts like a parser that never checks for them.
+  private static GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl stuckPlugin(
+      final CountDownLatch unstick) {
+    return new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl() {
+      @Override
+      public VersionTypeValidation validateWorkflowSet(
+          String initialPath,
+          String contents,
+          Map<String, MinimalLanguageInterface.FileMetadata> indexedFiles) {
+        while (initialPath.startsWith("stuck")) {
+          try {
+            unstick.await();
+            break;
+          } catch (InterruptedException e) {
+            // keep waiting
+          }
+        }
+        return super.validateWorkflowSet(initialPath, contents, indexedFiles);
+      }
+    };
   }
 
   @Test
@@ -166,6 +475,9 @@ public class GalaxyWorkflowLanguagePluginTest {
         plugin.indexWorkflowFiles(initialPath, contents, reader);
     assertTrue(
         fileMap.entrySet().stream().allMatch(entry -> entry.getValue().languageVersion() == null));
+    // no contents at all, no language version either
+    Assert.assertNull(
+        plugin.indexWorkflowFiles(initialPath, null, reader).get(initialPath).languageVersion());
   }
 
   @Test
@@ -206,6 +518,218 @@ public class GalaxyWorkflowLanguagePluginTest {
     assertTrue(validationProblem.contains("- .. WARNING"));
   }
 
+  @Test
+  public void testDirectoryListedOncePerSync() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final AtomicInteger listings = new AtomicInteger();
+    final ResourceFileReader reader =
+        new ResourceFileReader(REPO_ID_1) {
+          @Override
+          public List<String> listFiles(String pathToDirectory) {
+            listings.incrementAndGet();
+            return super.listFiles(pathToDirectory);
+          }
+        };
+    final String contents = new ResourceFileReader("subworkflow").readFile("subworkflow.ga");
+    for (final String initialPath : List.of("/Dockstore.gxwf.yml", "/Dockstore.ga", "/other.ga")) {
+      plugin.indexWorkflowFiles(initialPath, contents, reader);
+    }
+    Assert.assertEquals(1, listings.get());
+    assertTrue(
+        plugin
+            .indexWorkflowFiles(EXAMPLE_FILENAME_1_PATH, contents, reader)
+            .containsKey("/Dockstore.gxwf-test.yml"));
+  }
+
+  @Test
+  public void testListingsExpire() {
+    final AtomicInteger listings = new AtomicInteger();
+    final AtomicLong nanos = new AtomicLong();
+    final MinimalLanguageInterface.FileReader countingReader =
+        new ResourceFileReader(REPO_ID_1) {
+          @Override
+          public List<String> listFiles(String pathToDirectory) {
+            listings.incrementAndGet();
+            return super.listFiles(pathToDirectory);
+          }
+        };
+    final CachingFileReader reader =
+        new CachingFileReader(
+            countingReader,
+            CachingFileReader.listings(
+                CachingFileReader.LISTING_TTL,
+                new Ticker() {
+                  @Override
+                  public long read() {
+                    return nanos.get();
+                  }
+                }));
+    reader.listFiles("/");
+    nanos.addAndGet(CachingFileReader.LISTING_TTL.toNanos() - 1);
+    reader.listFiles("/");
+    Assert.assertEquals(1, listings.get());
+    nanos.incrementAndGet();
+    assertTrue(reader.listFiles("/").contains("/Dockstore.gxwf-test.yml"));
+    Assert.assertEquals(2, listings.get());
+  }
+
+  @Test
+  public void testConcurrentListingsAreShared() throws Exception {
+    final AtomicInteger listings = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final MinimalLanguageInterface.FileReader slowReader =
+        new ResourceFileReader(REPO_ID_1) {
+          @Override
+          public List<String> listFiles(String pathToDirectory) {
+            listings.incrementAndGet();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            return super.listFiles(pathToDirectory);
+          }
+        };
+    final CachingFileReader reader = new CachingFileReader(slowReader);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<List<String>>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(() -> reader.listFiles("/")));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (final Future<List<String>> result : results) {
+        assertTrue(result.get().contains("/Dockstore.gxwf-test.yml"));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(1, listings.get());
+  }
+
+  @Test
+  public void testSubworkflowElementsAreCached() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final InMemoryPluginMetrics metrics = new InMemoryPluginMetrics();
+    plugin.setMetrics(metrics);
+    final String contents = new ResourceFileReader("subworkflow").readFile("subworkflow.ga");
+    final Map<String, Object> elements =
+        plugin.loadSubworkflowElements("/subworkflow.ga", contents, "1");
+    Assert.assertEquals(3, ((List<?>) elements.get("nodes")).size());
+    // the same subworkflow in another version of the workflow is not built again
+    Assert.assertSame(
+        elements,
+        plugin.loadSubworkflowElements("/subworkflow.ga", contents.replace("count", "tally"), "1"));
+    Assert.assertEquals(
+        1, metrics.get(PluginMetrics.Operation.BUILD_CYTOSCAPE_ELEMENTS).getCount());
+    Assert.assertEquals(
+        2, metrics.get(PluginMetrics.Operation.LOAD_SUBWORKFLOW_ELEMENTS).getCount());
+    Assert.assertEquals(
+        Map.of(), plugin.loadSubworkflowElements("/subworkflow.ga", contents, "missing"));
+  }
+
+  @Test
+  public void testDiffWorkflows() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final String contents = new ResourceFileReader("subworkflow").readFile("subworkflow.ga");
+    final String renamed = contents.replace("\"label\": \"count\"", "\"label\": \"tally\"");
+    Assert.assertTrue(plugin.diffWorkflows(contents, contents).isEmpty());
+    final WorkflowDiff diff = plugin.diffWorkflows(contents, renamed);
+    Assert.assertEquals(1, diff.getChangedSteps().size());
+    Assert.assertEquals(List.of("label"), diff.getChangedSteps().get(0).getChangedKeys());
+    // each version parsed once
+    Assert.assertEquals(2, plugin.getParsedWorkflowCacheStats().missCount());
+    // and its step graph built once
+    final ParsedWorkflowCache parsedWorkflows = new ParsedWorkflowCache();
+    Assert.assertSame(parsedWorkflows.graph(contents), parsedWorkflows.graph(contents));
+  }
+
+  @Test
+  public void testAnalyzeVersionMatchesSeparateCalls() {
+    final Gson gson = new Gson();
+    for (final String[] resource :
+        List.of(
+            new String[] {"subworkflow", "subworkflow.ga"},
+            new String[] {"invalid_report_ga", "missing_markdown.ga"},
+            new String[] {
+              "test.error1", "Galaxy-Workflow-Long_read_assembly_with_Hifiasm_and_HiC_data.ga"
+            })) {
+      final ResourceFileReader reader = new ResourceFileReader(resource[0]);
+      final String initialPath = resource[1];
+      final String contents = reader.readFile(initialPath);
+      final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl separate =
+          new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+      final Map<String, MinimalLanguageInterface.FileMetadata> fileMap =
+          separate.indexWorkflowFiles(initialPath, contents, reader);
+      final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+          new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+      final VersionAnalysis analysis = plugin.analyzeVersion(initialPath, contents, fileMap);
+
+      final VersionTypeValidation validation =
+          separate.validateWorkflowSet(initialPath, contents, fileMap);
+      Assert.assertEquals(initialPath, validation.isValid(), analysis.getValidation().isValid());
+      Assert.assertEquals(
+          initialPath, validation.getMessage(), analysis.getValidation().getMessage());
+      Assert.assertEquals(
+          initialPath,
+          separate.loadCytoscapeElements(initialPath, contents, fileMap),
+          analysis.getCytoscapeElements());
+      Assert.assertEquals(
+          initialPath,
+          gson.toJson(separate.generateToolsTable(initialPath, contents, fileMap)),
+          gson.toJson(analysis.getToolsTable()));
+      Assert.assertEquals(
+          initialPath,
+          separate.parseWorkflowForMetadata(initialPath, contents, fileMap).getDescription(),
+          analysis.getMetadata().getDescription());
+      // the DAG is cached for Dockstore's later request
+      Assert.assertSame(
+          analysis.getCytoscapeElements(),
+          plugin.loadCytoscapeElements(initialPath, contents, fileMap));
+    }
+    // can't be traversed, falls back to the separate calls and keeps what they could build
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    Assert.assertThrows(
+        ClassCastException.class, () -> plugin.generateToolsTable("/x.ga", UNTRAVERSABLE, null));
+    final VersionAnalysis analysis = plugin.analyzeVersion("/x.ga", UNTRAVERSABLE, Map.of());
+    Assert.assertEquals(
+        plugin.validateWorkflowSet("/x.ga", UNTRAVERSABLE, Map.of()).getMessage(),
+        analysis.getValidation().getMessage());
+    assertTrue(analysis.getValidation().isValid());
+    assertTrue(analysis.getCytoscapeElements().isEmpty());
+    assertTrue(analysis.getToolsTable().isEmpty());
+  }
+
+  @Test
+  public void testValidateWithErrorBudget() {
+    final GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl plugin =
+        new GalaxyWorkflowPlugin.GalaxyWorkflowPluginImpl();
+    final String invalid =
+        "{\"a_galaxy_workflow\": \"true\", \"steps\": {\"0\": {\"errors\": \"a\"}, \"1\": {}}}";
+    final VersionTypeValidation rejected = plugin.validateWorkflowSet("/x.ga", invalid, 1);
+    Assert.assertFalse(rejected.isValid());
+    Assert.assertEquals(
+        ".. ERROR expected to have key [format-version] but absent",
+        rejected.getMessage().get("/x.ga"));
+    // warnings don't count towards the budget, the workflow is linted in full once
+    final String warnings =
+        "{\"a_galaxy_workflow\": \"true\", \"format-version\": \"0.1\", \"steps\":"
+            + " {\"0\": {\"errors\": \"a\"}, \"1\": {\"errors\": \"b\"}}}";
+    final InMemoryPluginMetrics metrics = new InMemoryPluginMetrics();
+    plugin.setMetrics(metrics);
+    final VersionTypeValidation accepted = plugin.validateWorkflowSet("/x.ga", warnings, 1);
+    Assert.assertTrue(accepted.isValid());
+    Assert.assertEquals(1, metrics.get(PluginMetrics.Operation.LINT).getCount());
+    Assert.assertEquals(
+        plugin.validateWorkflowSet("/x.ga", warnings, Map.of()).getMessage(),
+        accepted.getMessage());
+  }
+
   @Test
   public void testInitialPathPattern() {
     // TODO: This doesn't seem to be called by Dockstore anywhere - is that right?
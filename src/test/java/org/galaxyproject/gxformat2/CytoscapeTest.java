@@ -4,7 +4,9 @@ import static org.galaxyproject.gxformat2.Cytoscape.END_ID;
 import static org.galaxyproject.gxformat2.Cytoscape.START_ID;
 
 import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -76,6 +78,203 @@ public class CytoscapeTest {
     generalTest(knownStartingSteps, knownEndingSteps, json);
   }
 
+  @Test
+  public void testLabelTakesPrecedenceOverId() {
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  input1: data\n"
+                + "steps:\n"
+                + "  - {id: shared, label: other, tool_id: cat1, in: {input1: input1}}\n"
+                + "  - {id: first, label: shared, tool_id: cat1, in: {input1: input1}}\n"
+                + "  - {label: last, tool_id: cat1, in: {input1: shared}}\n");
+    final Map<String, Object> elements = Cytoscape.getElements(workflow);
+    final List<Map<String, Object>> edgesToLast =
+        ((List<Object>) elements.get("edges"))
+            .stream()
+                .map(edge -> (Map<String, Object>) gson.fromJson(gson.toJson(edge), Map.class))
+                .map(edge -> (Map<String, Object>) edge.get("data"))
+                .filter(data -> "last".equals(data.get("target")))
+                .collect(Collectors.toList());
+    Assert.assertEquals(1, edgesToLast.size());
+    Assert.assertEquals("first", edgesToLast.get(0).get("source"));
+  }
+
+  @Test
+  public void testWriteElementsMatchesSerializedMap() throws Exception {
+    for (final String path :
+        Arrays.asList(
+            "src/test/resources/transcriptomics-denovo-workflow.ga",
+            "src/test/resources/anotherFile.ga",
+            "src/test/resources/jmchilton/galaxy-workflow-dockstore-example-1/Dockstore.gxwf.yml")) {
+      final byte[] expected =
+          Cytoscape.objectMapper.writeValueAsBytes(
+              Cytoscape.getElements((Map<String, Object>) IoUtils.readYamlFromPath(path)));
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Cytoscape.writeElements((Map<String, Object>) IoUtils.readYamlFromPath(path), out);
+      Assert.assertEquals(
+          path, new String(expected, StandardCharsets.UTF_8), out.toString(StandardCharsets.UTF_8));
+      Assert.assertArrayEquals(path, expected, out.toByteArray());
+    }
+  }
+
+  @Test
+  public void testConstantFragmentsAreShared() throws Exception {
+    final Map<String, Object> workflow =
+        (Map<String, Object>) IoUtils.readYamlFromPath("src/test/resources/anotherFile.ga");
+    final List<Map<String, Object>> nodes =
+        (List<Map<String, Object>>) Cytoscape.getElements(workflow).get("nodes");
+    final List<Map<String, Object>> nodesAgain =
+        (List<Map<String, Object>>) Cytoscape.getElements(workflow).get("nodes");
+    Assert.assertSame(nodes.get(0), nodesAgain.get(0));
+    Assert.assertSame(nodes.get(1), nodesAgain.get(1));
+    Assert.assertSame(nodes.get(2).get("classes"), nodesAgain.get(2).get("classes"));
+    Assert.assertNotSame(nodes.get(2).get("data"), nodesAgain.get(2).get("data"));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> nodes.get(0).put("id", "x"));
+    Assert.assertThrows(
+        UnsupportedOperationException.class,
+        () -> ((List<String>) nodes.get(2).get("classes")).add("x"));
+  }
+
+  @Test
+  public void testGetElementsLeavesWorkflowUntouched() throws Exception {
+    final String dictSteps =
+        "class: GalaxyWorkflow\n"
+            + "inputs:\n"
+            + "  input1: {type: data}\n"
+            + "steps:\n"
+            + "  cat: {tool_id: cat1, in: {input1: input1}}\n";
+    final List<Map<String, Object>> workflows =
+        Arrays.asList(
+            (Map<String, Object>)
+                IoUtils.readYamlFromPath("src/test/resources/transcriptomics-denovo-workflow.ga"),
+            (Map<String, Object>)
+                IoUtils.readYamlFromPath(
+                    "src/test/resources/jmchilton/galaxy-workflow-dockstore-example-1/Dockstore.gxwf.yml"),
+            DocumentParser.load(dictSteps));
+    for (final Map<String, Object> workflow : workflows) {
+      final String before = gson.toJson(workflow);
+      final Map<String, Object> elements = Cytoscape.getElements(workflow);
+      Cytoscape.writeElements(workflow, new ByteArrayOutputStream());
+      Assert.assertEquals(before, gson.toJson(workflow));
+      Assert.assertEquals(gson.toJson(elements), gson.toJson(Cytoscape.getElements(workflow)));
+    }
+  }
+
+  @Test
+  public void testSubworkflowsExpandOnDemand() throws Exception {
+    final Map<String, Object> workflow =
+        (Map<String, Object>)
+            IoUtils.readYamlFromPath(
+                "src/test/resources/org/galaxyproject/dockstore_galaxy_interface/language/repos/subworkflow/subworkflow.ga");
+    final CytoscapeDAG dag =
+        gson.fromJson(gson.toJson(Cytoscape.getElements(workflow)), CytoscapeDAG.class);
+    Assert.assertEquals(5, dag.getNodes().size());
+    final Map<String, Object> compound =
+        ((List<Map<String, Object>>) Cytoscape.getElements(workflow).get("nodes"))
+            .stream()
+                .filter(
+                    node ->
+                        node.containsKey("classes")
+                            && ((List<String>) node.get("classes")).contains("compound"))
+                .findFirst()
+                .get();
+    final String path = (String) ((Map<String, Object>) compound.get("data")).get("id");
+    Assert.assertEquals("1", path);
+
+    final Map<String, Object> children = Cytoscape.getSubworkflowElements(workflow, path);
+    final List<Map<String, Object>> childData =
+        ((List<Map<String, Object>>) children.get("nodes"))
+            .stream()
+                .map(node -> (Map<String, Object>) node.get("data"))
+                .collect(Collectors.toList());
+    Assert.assertEquals(
+        Arrays.asList("1/0", "1/1", "1/2"),
+        childData.stream().map(data -> data.get("id")).collect(Collectors.toList()));
+    childData.forEach(data -> Assert.assertEquals(path, data.get("parent")));
+    final Set<Object> childIds =
+        childData.stream().map(data -> data.get("id")).collect(Collectors.toSet());
+    for (final Map<String, Object> edge : (List<Map<String, Object>>) children.get("edges")) {
+      final Map<String, Object> data = (Map<String, Object>) edge.get("data");
+      Assert.assertTrue(childIds.contains(data.get("source")));
+      Assert.assertTrue(childIds.contains(data.get("target")));
+    }
+    Assert.assertFalse(((List<Object>) children.get("edges")).isEmpty());
+    Assert.assertThrows(
+        IllegalArgumentException.class, () -> Cytoscape.getSubworkflowElements(workflow, "2"));
+    Assert.assertThrows(
+        IllegalArgumentException.class, () -> Cytoscape.getSubworkflowElements(workflow, "1/0"));
+  }
+
+  @Test
+  public void testSummaryCollapsesFanOutsAndChains() {
+    final StringBuilder format2 =
+        new StringBuilder("class: GalaxyWorkflow\ninputs:\n  input1: data\nsteps:\n");
+    for (int i = 0; i < 6; i++) {
+      format2.append("  fan" + i + ": {tool_id: cat1, in: {input1: input1}}\n");
+    }
+    format2.append("  chain0: {tool_id: sort1, in: {input: fan0/out_file1}}\n");
+    for (int i = 1; i < 4; i++) {
+      format2.append("  chain" + i + ": {tool_id: sort1, in: {input: chain" + (i - 1) + "/out}}\n");
+    }
+    final Map<String, Object> workflow = DocumentParser.load(format2.toString());
+    final CytoscapeOptions options = CytoscapeOptions.DEFAULT.withNodeBudget(5);
+
+    final Map<String, Object> summary = Cytoscape.getElements(workflow, null, options);
+    Assert.assertEquals(
+        Arrays.asList(START_ID, END_ID, "input1", "aggregate__fan0", "aggregate__chain0"),
+        dataValues(summary, "nodes", "id"));
+    Assert.assertEquals(
+        Arrays.asList(
+            START_ID + "->input1",
+            "input1->aggregate__fan0",
+            "aggregate__fan0->aggregate__chain0",
+            "aggregate__fan0->" + END_ID,
+            "aggregate__chain0->" + END_ID),
+        dataValues(summary, "edges", "source", "target"));
+
+    final Map<String, Object> fan =
+        Cytoscape.expandAggregate(workflow, null, "aggregate__fan0", options);
+    Assert.assertEquals(
+        Arrays.asList("fan0", "fan1", "fan2", "fan3", "fan4", "fan5"),
+        dataValues(fan, "nodes", "id"));
+    Assert.assertEquals(
+        Collections.nCopies(6, "aggregate__fan0"), dataValues(fan, "nodes", "parent"));
+    Assert.assertEquals(7, ((List<?>) fan.get("edges")).size());
+    Assert.assertTrue(
+        dataValues(fan, "edges", "source", "target").contains("fan0->aggregate__chain0"));
+    Assert.assertEquals(
+        4,
+        ((List<?>)
+                Cytoscape.expandAggregate(workflow, null, "aggregate__chain0", options)
+                    .get("nodes"))
+            .size());
+    Assert.assertThrows(
+        IllegalArgumentException.class,
+        () -> Cytoscape.expandAggregate(workflow, null, "aggregate__fan1", options));
+
+    // within the budget nothing changes
+    Assert.assertEquals(
+        gson.toJson(Cytoscape.getElements(workflow)),
+        gson.toJson(
+            Cytoscape.getElements(workflow, null, CytoscapeOptions.DEFAULT.withNodeBudget(11))));
+  }
+
+  // data values of all nodes or edges, joined with -> when there are several keys
+  private static List<String> dataValues(
+      final Map<String, Object> elements, final String group, final String... keys) {
+    return ((List<Map<String, Object>>) elements.get(group))
+        .stream()
+            .map(element -> (Map<String, Object>) element.get("data"))
+            .map(
+                data ->
+                    Arrays.stream(keys)
+                        .map(key -> (String) data.get(key))
+                        .collect(Collectors.joining("->")))
+            .collect(Collectors.toList());
+  }
+
   public void generalTest(
       List<String> knownStartingSteps, List<String> knownEndingSteps, String json) {
     CytoscapeDAG cytoscapeDAG = gson.fromJson(json, CytoscapeDAG.class);
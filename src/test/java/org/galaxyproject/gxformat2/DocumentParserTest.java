@@ -0,0 +1,92 @@
+package org.galaxyproject.gxformat2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.yaml.snakeyaml.Yaml;
+
+public class DocumentParserTest {
+
+  @Test
+  public void testJsonMatchesYaml() throws IOException {
+    for (final String path :
+        List.of(
+            "src/test/resources/transcriptomics-denovo-workflow.ga",
+            "src/test/resources/anotherFile.ga",
+            "src/test/resources/org/galaxyproject/dockstore_galaxy_interface/language/repos/test.error1/Galaxy-Workflow-Long_read_assembly_with_Hifiasm_and_HiC_data.ga")) {
+      final String contents =
+          new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+      Assert.assertTrue(JsonDocumentReader.looksLikeJson(contents));
+      final Map<String, Object> expected = new Yaml().loadAs(contents, Map.class);
+      Assert.assertEquals(path, expected, DocumentParser.loadAs(contents, Map.class));
+    }
+  }
+
+  @Test
+  public void testNumberTypes() {
+    final Map<String, Object> parsed =
+        DocumentParser.load("{\"i\": 1, \"l\": 12345678901, \"d\": 1.5, \"n\": null, \"b\": true}");
+    Assert.assertEquals(Integer.valueOf(1), parsed.get("i"));
+    Assert.assertEquals(Long.valueOf(12345678901L), parsed.get("l"));
+    Assert.assertEquals(Double.valueOf(1.5), parsed.get("d"));
+    Assert.assertTrue(parsed.containsKey("n"));
+    Assert.assertEquals(Boolean.TRUE, parsed.get("b"));
+  }
+
+  @Test
+  public void testYamlFlowMappingFallsBack() {
+    final Map<String, Object> parsed = DocumentParser.load("{moo: cow, bark: [dog]}");
+    Assert.assertEquals("cow", parsed.get("moo"));
+    Assert.assertEquals(List.of("dog"), parsed.get("bark"));
+  }
+
+  @Test
+  public void testPositionsMatchBetweenJsonAndYaml() throws IOException {
+    final String path = "src/test/resources/anotherFile.ga";
+    final String contents = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    final SourcePositions json = new SourcePositions();
+    final Map<String, Object> fromJson = DocumentParser.load(contents, json);
+    Assert.assertEquals(DocumentParser.load(contents), fromJson);
+    // a trailing comment makes it YAML only
+    final SourcePositions yaml = new SourcePositions();
+    final Map<String, Object> fromYaml = DocumentParser.load(contents + "\n# end", yaml);
+    Assert.assertEquals(fromJson, fromYaml);
+    final Map<String, Object> steps = (Map<String, Object>) fromJson.get("steps");
+    final Object step = steps.get("1");
+    Assert.assertEquals("/steps/1", json.pointer(step, null));
+    Assert.assertEquals("/steps/1/tool_id", json.pointer(step, "tool_id"));
+    Assert.assertEquals(
+        json.mark(step, "tool_id"),
+        yaml.mark(((Map<String, Object>) fromYaml.get("steps")).get("1"), "tool_id"));
+    Assert.assertEquals(SourcePositions.mark(1, 1), json.mark(fromJson, null));
+  }
+
+  @Test
+  public void testYamlPositions() {
+    final SourcePositions positions = new SourcePositions();
+    final Map<String, Object> parsed =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "base: &base {a/b: 1}\n"
+                + "steps:\n"
+                + "  - tool_id: cat1\n"
+                + "  - *base\n",
+            positions);
+    final List<Object> steps = (List<Object>) parsed.get("steps");
+    Assert.assertEquals("/steps/0", positions.pointer(steps.get(0), null));
+    Assert.assertEquals(SourcePositions.mark(4, 5), positions.mark(steps.get(0), "tool_id"));
+    // an alias is where its anchor is, keys are escaped
+    Assert.assertEquals(SourcePositions.mark(2, 7), positions.mark(steps, 1));
+    Assert.assertEquals("/base/a~1b", positions.pointer(steps.get(1), "a/b"));
+    Assert.assertEquals(SourcePositions.mark(2, 14), positions.mark(steps.get(1), "a/b"));
+    // unknown keys are located at their map, unknown containers not at all
+    Assert.assertEquals(SourcePositions.mark(4, 5), positions.mark(steps.get(0), "absent"));
+    Assert.assertEquals(SourcePositions.UNKNOWN, positions.mark(Map.of(), null));
+    Assert.assertNull(positions.pointer(Map.of(), null));
+  }
+}
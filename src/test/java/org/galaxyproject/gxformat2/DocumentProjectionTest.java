@@ -0,0 +1,57 @@
+package org.galaxyproject.gxformat2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DocumentProjectionTest {
+  private static final Set<String> KEYS = Set.of("name", "label", "annotation", "doc", "class");
+
+  @Test
+  public void testMatchesFullParse() throws IOException {
+    for (final String path :
+        List.of(
+            "src/test/resources/transcriptomics-denovo-workflow.ga",
+            "src/test/resources/jmchilton/galaxy-workflow-dockstore-example-1/Dockstore.gxwf.yml",
+            "src/test/resources/org/galaxyproject/dockstore_galaxy_interface/language/repos/invalid_report_ga/missing_markdown.ga")) {
+      final String contents =
+          new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+      final Map<String, Object> full = DocumentParser.load(contents);
+      final Map<String, Object> projected = DocumentProjection.readTopLevel(contents, KEYS);
+      for (final String key : KEYS) {
+        Assert.assertEquals(path + " " + key, full.get(key), projected.get(key));
+      }
+    }
+  }
+
+  @Test
+  public void testScalarTypesAndStructuredValues() {
+    final String yaml =
+        "name: 42\nsteps:\n  a: {b: [1, 2]}\nlabel: &l moo\ndoc:\n  - line one\n  - line two\n";
+    final Map<String, Object> projected = DocumentProjection.readTopLevel(yaml, KEYS);
+    Assert.assertEquals(42, projected.get("name"));
+    Assert.assertEquals("moo", projected.get("label"));
+    Assert.assertEquals(List.of("line one", "line two"), projected.get("doc"));
+    Assert.assertFalse(projected.containsKey("steps"));
+  }
+
+  @Test
+  public void testStopsOnceKeysAreSeen() {
+    final String yaml = "name: moo\nsteps: [unterminated\n";
+    Assert.assertEquals("moo", DocumentProjection.readTopLevel(yaml, Set.of("name")).get("name"));
+    final String json = "{\"name\": \"moo\", \"steps\": [";
+    Assert.assertEquals("moo", DocumentProjection.readTopLevel(json, Set.of("name")).get("name"));
+  }
+
+  @Test
+  public void testNotAMapping() {
+    Assert.assertNull(DocumentProjection.readTopLevel("- moo\n- cow\n", KEYS));
+    Assert.assertNull(DocumentProjection.readTopLevel("[1, 2]", KEYS));
+  }
+}
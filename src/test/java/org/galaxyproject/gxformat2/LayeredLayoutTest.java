@@ -0,0 +1,128 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.galaxyproject.gxformat2.benchmarks.CytoscapeScalingBenchmark;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LayeredLayoutTest {
+
+  @Test
+  public void testLayersAndCrossingReduction() {
+    final WorkflowGraph graph =
+        graph(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  a: data\n"
+                + "  b: data\n"
+                + "steps:\n"
+                + "  from_b: {tool_id: cat1, in: {input1: b}}\n"
+                + "  from_a: {tool_id: cat1, in: {input1: a}}\n"
+                + "  both: {tool_id: cat1, in: {input1: from_a/out_file1, queries: b}}\n");
+    final LayeredLayout.Positions positions = LayeredLayout.DEFAULT.layout(graph);
+    final int a = graph.indexOf("a");
+    final int b = graph.indexOf("b");
+    final int fromA = graph.indexOf("from_a");
+    final int fromB = graph.indexOf("from_b");
+    final int both = graph.indexOf("both");
+    Assert.assertEquals(positions.x(a), positions.x(b));
+    Assert.assertEquals(positions.x(fromA), positions.x(fromB));
+    Assert.assertTrue(positions.x(fromA) > positions.x(a));
+    // both reads from b directly but is placed after from_a
+    Assert.assertTrue(positions.x(both) > positions.x(fromA));
+    // from_a moves up next to a, so the connections don't cross
+    Assert.assertTrue(positions.y(fromA) < positions.y(fromB));
+
+    final LayeredLayout.Positions inStepOrder = new LayeredLayout(0, 250, 100).layout(graph);
+    Assert.assertTrue(inStepOrder.y(fromA) > inStepOrder.y(fromB));
+  }
+
+  @Test
+  public void testCyclesArePlaced() {
+    final WorkflowGraph graph =
+        graph(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  input1: data\n"
+                + "steps:\n"
+                + "  first: {tool_id: cat1, in: {input1: second/out_file1}}\n"
+                + "  second: {tool_id: cat1, in: {input1: first/out_file1}}\n"
+                + "  self: {tool_id: cat1, in: {input1: self/out_file1}}\n");
+    final LayeredLayout.Positions positions = LayeredLayout.DEFAULT.layout(graph);
+    Assert.assertTrue(positions.x(graph.indexOf("second")) > positions.x(graph.indexOf("first")));
+    Assert.assertEquals(0, positions.x(graph.indexOf("self")));
+  }
+
+  @Test
+  public void testDeterministic() {
+    final Map<String, Object> workflow = CytoscapeScalingBenchmark.nativeWorkflow(200);
+    final WorkflowGraph graph = WorkflowAdapter.forWorkflow(workflow).graph();
+    final LayeredLayout.Positions first = LayeredLayout.DEFAULT.layout(graph);
+    final LayeredLayout.Positions second =
+        LayeredLayout.DEFAULT.layout(WorkflowAdapter.forWorkflow(workflow).graph());
+    for (int step = 0; step < graph.size(); step++) {
+      Assert.assertEquals(first.x(step), second.x(step));
+      Assert.assertEquals(first.y(step), second.y(step));
+      Assert.assertEquals(step * LayeredLayout.DEFAULT_LAYER_SPACING, first.x(step));
+    }
+  }
+
+  @Test
+  public void testCytoscapeUsesLayoutWithoutPositions() {
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  a: data\n"
+                + "  b: data\n"
+                + "steps:\n"
+                + "  cat: {tool_id: cat1, in: {input1: a, queries: b}}\n");
+    final List<Map<String, Object>> nodes =
+        (List<Map<String, Object>>) Cytoscape.getElements(workflow).get("nodes");
+    final Map<String, Object> b = nodes.get(3);
+    final Map<String, Object> cat = nodes.get(4);
+    Assert.assertEquals("b", ((Map<String, Object>) b.get("data")).get("id"));
+    Assert.assertEquals(Map.of("x", 0L, "y", 100L), b.get("position"));
+    Assert.assertEquals(Map.of("x", 250L, "y", 0L), cat.get("position"));
+  }
+
+  @Test
+  public void testCytoscapeKeepsAuthoredPositions() {
+    // Format 2 inputs usually have no position, the tool steps do
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  a: data\n"
+                + "  b: data\n"
+                + "steps:\n"
+                + "  cat:\n"
+                + "    tool_id: cat1\n"
+                + "    position: {left: 600, top: 320}\n"
+                + "    in: {input1: a, queries: b}\n"
+                + "  sort:\n"
+                + "    tool_id: sort1\n"
+                + "    position: {left: 900.5, top: 40}\n"
+                + "    in: {input: cat/out_file1}\n"
+                + "  head: {tool_id: head1, in: {input: sort/out_file1}}\n");
+    final List<Map<String, Object>> nodes =
+        (List<Map<String, Object>>) Cytoscape.getElements(workflow).get("nodes");
+    final Map<String, Object> positions = new HashMap<>();
+    for (final Map<String, Object> node : nodes) {
+      positions.put(
+          (String) ((Map<String, Object>) node.get("data")).get("id"), node.get("position"));
+    }
+    Assert.assertEquals(Map.of("x", 600L, "y", 320L), positions.get("cat"));
+    Assert.assertEquals(Map.of("x", 900L, "y", 40L), positions.get("sort"));
+    // the inputs go a layer before the tool using them, one below the other
+    Assert.assertEquals(Map.of("x", 350L, "y", 320L), positions.get("a"));
+    Assert.assertEquals(Map.of("x", 350L, "y", 420L), positions.get("b"));
+    Assert.assertEquals(Map.of("x", 1150L, "y", 40L), positions.get("head"));
+  }
+
+  private static WorkflowGraph graph(final String format2) {
+    return WorkflowAdapter.forWorkflow(DocumentParser.load(format2)).graph();
+  }
+}
@@ -0,0 +1,185 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LintContextTest {
+
+  @Test
+  public void testMessagesAreFormattedWhenCollected() {
+    final AtomicInteger formatted = new AtomicInteger();
+    final Object value =
+        new Object() {
+          @Override
+          public String toString() {
+            formatted.incrementAndGet();
+            return "value";
+          }
+        };
+    final LintContext lintContext = new LintContext();
+    lintContext.error("expected [%s] to be a dictionary type", value);
+    lintContext.warn("100%% of [%s]", value);
+    Assert.assertEquals(0, formatted.get());
+    Assert.assertTrue(lintContext.getFoundErrors());
+    Assert.assertTrue(lintContext.getFoundWarns());
+    Assert.assertEquals(
+        List.of(".. ERROR expected [value] to be a dictionary type", ".. WARNING 100% of [value]"),
+        lintContext.collectMessages());
+    Assert.assertEquals(2, formatted.get());
+  }
+
+  @Test
+  public void testValidAndInfoAreOptIn() {
+    final AtomicInteger formatted = new AtomicInteger();
+    final Object value =
+        new Object() {
+          @Override
+          public String toString() {
+            formatted.incrementAndGet();
+            return "value";
+          }
+        };
+    final LintContext quiet = new LintContext();
+    quiet.valid("found [%s]", value);
+    quiet.info("found [%s]", value);
+    Assert.assertTrue(quiet.getValidMessages().isEmpty());
+    Assert.assertTrue(quiet.getInfoMessages().isEmpty());
+    Assert.assertEquals(0, formatted.get());
+
+    final LintContext verbose = new LintContext(true);
+    verbose.valid("found [%s]", value);
+    verbose.info("found [%s] again", value);
+    Assert.assertEquals(List.of("found [value]"), verbose.getValidMessages());
+    Assert.assertEquals(List.of("found [value] again"), verbose.getInfoMessages());
+    Assert.assertTrue(verbose.collectMessages().isEmpty());
+    Assert.assertFalse(verbose.getFoundErrors());
+  }
+
+  @Test
+  public void testLintKeepsMessages() throws Exception {
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "{a_galaxy_workflow: 'true', steps: {'0': {errors: 'tool missing 100%'}}}");
+    final LintContext lintContext = Lint.lint(workflow);
+    Assert.assertTrue(
+        lintContext
+            .collectMessages()
+            .contains(
+                ".. WARNING tool step contains error indicated during Galaxy export - tool"
+                    + " missing 100%"));
+  }
+
+  @Test
+  public void testBudgetStopsNestedNativeLinting() {
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "{a_galaxy_workflow: 'true', format-version: '0.1', steps: {"
+                + "'0': {errors: early},"
+                + "'1': {type: subworkflow, errors: outer, subworkflow: {steps: {"
+                + "'0': {errors: first}, '1': {errors: second}}}},"
+                + "'2': {errors: last}}}");
+    final List<String> messages = Lint.lint(workflow).collectMessages();
+    Assert.assertEquals(11, messages.size());
+    Assert.assertTrue(
+        messages.contains(
+            ".. WARNING tool step contains error indicated during Galaxy export - last"));
+    // the subworkflow misses both keys, two errors each, the third one stops everything
+    final LintContext lintContext = Lint.lint(workflow, false, 3);
+    Assert.assertTrue(lintContext.isBudgetExhausted());
+    Assert.assertTrue(lintContext.getFoundErrors());
+    // warnings don't count, the one found before is kept
+    Assert.assertEquals(
+        List.of(
+            messages.get(0),
+            messages.get(1),
+            messages.get(2),
+            ".. WARNING tool step contains error indicated during Galaxy export - early"),
+        lintContext.collectMessages());
+    // only warnings are never cut short
+    final LintContext lintedInFull = Lint.lint(workflow, false, 5);
+    Assert.assertFalse(lintedInFull.isBudgetExhausted());
+    Assert.assertEquals(messages, lintedInFull.collectMessages());
+    Assert.assertFalse(Lint.lint(workflow).isBudgetExhausted());
+  }
+
+  @Test
+  public void testBudgetKeepsFormat2MessageOrder() {
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs: 7\n"
+                + "steps:\n"
+                + "  first: {tool_id: cat1, errors: broken}\n");
+    final List<String> messages = Lint.lint(workflow).collectMessages();
+    Assert.assertTrue(messages.get(0).startsWith(".. ERROR Validation failed"));
+    Assert.assertEquals(
+        ".. WARNING tool step contains error indicated during Galaxy export - broken",
+        messages.get(1));
+    final LintContext lintContext = Lint.lint(workflow, false, 1);
+    Assert.assertTrue(lintContext.isBudgetExhausted());
+    Assert.assertEquals(messages.subList(0, 1), lintContext.collectMessages());
+  }
+
+  @Test
+  public void testFindingsAreLocated() {
+    final String content =
+        "a_galaxy_workflow: 'true'\n"
+            + "format-version: '0.2'\n"
+            + "steps:\n"
+            + "  '0':\n"
+            + "    errors: missing tool\n"
+            + "    workflow_outputs:\n"
+            + "      - label: ''\n";
+    final LintContext lintContext = Lint.lintDocument(content);
+    final Map<String, Object> workflow = DocumentParser.load(content);
+    Assert.assertEquals(Lint.lint(workflow).collectMessages(), lintContext.collectMessages());
+    final List<LintFinding> findings = lintContext.getFindings();
+    Assert.assertEquals(lintContext.collectMessages().size(), findings.size());
+
+    final LintFinding wrongVersion = findings.get(0);
+    Assert.assertEquals(LintFinding.Severity.ERROR, wrongVersion.getSeverity());
+    Assert.assertEquals(LintRule.WRONG_VALUE, wrongVersion.getRule());
+    Assert.assertEquals("/format-version", wrongVersion.getPath());
+    Assert.assertEquals(2, wrongVersion.getLine());
+    Assert.assertEquals(1, wrongVersion.getColumn());
+
+    final LintFinding exportError = findings.get(1);
+    Assert.assertEquals(LintFinding.Severity.WARNING, exportError.getSeverity());
+    Assert.assertEquals("step-export-errors", exportError.getRule().getCode());
+    Assert.assertEquals("/steps/0/errors", exportError.getPath());
+    Assert.assertEquals(5, exportError.getLine());
+    Assert.assertEquals(5, exportError.getColumn());
+    Assert.assertEquals(
+        "tool step contains error indicated during Galaxy export - missing tool",
+        exportError.getMessage());
+
+    final LintFinding noLabel = findings.get(2);
+    Assert.assertEquals(LintRule.OUTPUT_WITHOUT_LABEL, noLabel.getRule());
+    Assert.assertEquals("/steps/0/workflow_outputs/0/label", noLabel.getPath());
+    Assert.assertEquals(7, noLabel.getLine());
+    Assert.assertEquals(9, noLabel.getColumn());
+  }
+
+  @Test
+  public void testFindingsWithoutPositions() {
+    final Map<String, Object> workflow =
+        DocumentParser.load("{\"a_galaxy_workflow\": \"true\", \"steps\": {\"x\": {}}}");
+    final List<LintFinding> findings = Lint.lint(workflow).getFindings();
+    Assert.assertEquals(LintRule.MISSING_KEY, findings.get(0).getRule());
+    // the key is absent, it goes where it should be
+    Assert.assertEquals("/format-version", findings.get(0).getPath());
+    Assert.assertEquals(-1, findings.get(0).getLine());
+    Assert.assertEquals(LintRule.STEP_KEY_NOT_INTEGER, findings.get(2).getRule());
+    Assert.assertEquals("/steps/x", findings.get(2).getPath());
+    Assert.assertEquals(LintRule.NO_OUTPUTS, findings.get(3).getRule());
+    Assert.assertEquals("", findings.get(3).getPath());
+
+    final LintContext messagesOnly = new LintContext();
+    messagesOnly.warn("free text");
+    Assert.assertNull(messagesOnly.getFindings().get(0).getRule());
+    Assert.assertNull(messagesOnly.getFindings().get(0).getPath());
+  }
+}
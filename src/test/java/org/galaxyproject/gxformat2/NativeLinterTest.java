@@ -0,0 +1,203 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NativeLinterTest {
+  private static final String LONG_READ_ASSEMBLY =
+      "src/test/resources/org/galaxyproject/dockstore_galaxy_interface/language/repos/test.error1/Galaxy-Workflow-Long_read_assembly_with_Hifiasm_and_HiC_data.ga";
+  private static final String SUBWORKFLOW =
+      "src/test/resources/org/galaxyproject/dockstore_galaxy_interface/language/repos/subworkflow/subworkflow.ga";
+
+  @Test
+  public void testParallelMatchesSerial() throws Exception {
+    final List<Map<String, Object>> workflows =
+        List.of(
+            (Map<String, Object>) IoUtils.readYamlFromPath(LONG_READ_ASSEMBLY),
+            (Map<String, Object>) IoUtils.readYamlFromPath(SUBWORKFLOW),
+            nestedWorkflow(3, 6));
+    for (final Map<String, Object> workflow : workflows) {
+      final List<String> serial = lint(workflow, Integer.MAX_VALUE);
+      Assert.assertEquals(serial, lint(workflow, 0));
+      Assert.assertEquals(serial, lint(workflow, 2));
+      Assert.assertEquals(serial, lint(workflow, NativeLinter.DEFAULT_SEQUENTIAL_THRESHOLD));
+    }
+    final List<String> messages = lint(nestedWorkflow(3, 6), 0);
+    // two errors for the missing format version, the export error and no outputs, for each of the
+    // 1 + 6 + 36 + 216 workflows; the deepest first subworkflow comes first
+    Assert.assertEquals(259 * 4, messages.size());
+    Assert.assertEquals(
+        List.of(
+            ".. WARNING tool step contains error indicated during Galaxy export - 000",
+            ".. WARNING " + NativeLinter.LINT_FAILED_NO_OUTPUTS),
+        messages.subList(518, 520));
+  }
+
+  @Test
+  public void testInterruptStopsForkedSubworkflows() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicInteger linted = new AtomicInteger();
+    final Map<String, Object> slowSteps = new LinkedHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      slowSteps.put(
+          Integer.toString(i),
+          new LinkedHashMap<String, Object>() {
+            @Override
+            public boolean containsKey(final Object key) {
+              if ("workflow_outputs".equals(key)) {
+                linted.incrementAndGet();
+                started.countDown();
+                try {
+                  Thread.sleep(1);
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+              return super.containsKey(key);
+            }
+          });
+    }
+    final Map<String, Object> subworkflow = new LinkedHashMap<>();
+    subworkflow.put("steps", slowSteps);
+    // waits for the subworkflow to start on a worker, rather than on the caller once it joins
+    final Map<String, Object> first =
+        new LinkedHashMap<>() {
+          @Override
+          public boolean containsKey(final Object key) {
+            try {
+              started.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return super.containsKey(key);
+          }
+        };
+    final Map<String, Object> step = step(1);
+    step.put("type", "subworkflow");
+    step.put("subworkflow", subworkflow);
+    final Map<String, Object> steps = new LinkedHashMap<>();
+    steps.put("0", first);
+    steps.put("1", step);
+    final Map<String, Object> workflow = new LinkedHashMap<>();
+    workflow.put("steps", steps);
+
+    final AtomicReference<Throwable> thrown = new AtomicReference<>();
+    final Thread linting =
+        new Thread(
+            () -> {
+              try {
+                new NativeLinter(0).lint(new LintContext(false), workflow);
+              } catch (Throwable e) {
+                thrown.set(e);
+              }
+            });
+    linting.start();
+    started.await();
+    linting.interrupt();
+    linting.join(5000);
+    Assert.assertFalse(linting.isAlive());
+    Assert.assertTrue(thrown.get() instanceof CancellationException);
+    // the forked subworkflow stopped too, rather than running on to the end
+    final int stoppedAt = linted.get();
+    Thread.sleep(50);
+    Assert.assertEquals(stoppedAt, linted.get());
+    Assert.assertTrue(stoppedAt < slowSteps.size());
+  }
+
+  @Test
+  public void testBudgetStillStopsInOrder() {
+    final Map<String, Object> workflow = nestedWorkflow(2, 4);
+    final LintContext serial = new LintContext(false, 7);
+    new NativeLinter(Integer.MAX_VALUE).lint(serial, workflow);
+    final LintContext parallel = new LintContext(false, 7);
+    new NativeLinter(0).lint(parallel, workflow);
+    Assert.assertTrue(parallel.isBudgetExhausted());
+    Assert.assertEquals(serial.collectMessages(), parallel.collectMessages());
+  }
+
+  @Test
+  public void testLintVisitorMatchesLint() throws Exception {
+    final Map<String, Object> notRun = nestedWorkflow(2, 2);
+    // a subworkflow the traversal enters but the linter doesn't, the step isn't of that type
+    ((Map<String, Object>) ((Map<String, Object>) notRun.get("steps")).get("1"))
+        .put("type", "tool");
+    final List<Map<String, Object>> workflows =
+        List.of(
+            (Map<String, Object>) IoUtils.readYamlFromPath(SUBWORKFLOW),
+            (Map<String, Object>)
+                IoUtils.readYamlFromPath(
+                    "src/test/resources/jmchilton/galaxy-workflow-dockstore-example-1/Dockstore.gxwf.yml"),
+            nestedWorkflow(3, 3),
+            notRun,
+            // a tool ID that is a number
+            (Map<String, Object>) IoUtils.readYamlFromPath(LONG_READ_ASSEMBLY));
+    for (final Map<String, Object> workflow : workflows) {
+      final LintVisitor visitor = new LintVisitor();
+      final ToolCounter counter = new ToolCounter();
+      WorkflowTraversal.traverse(workflow, List.of(visitor, counter));
+      Assert.assertEquals(
+          Lint.lint(workflow).collectMessages(), visitor.getLintContext().collectMessages());
+      Assert.assertEquals(
+          Lint.lint(workflow).getFoundWarns(), visitor.getLintContext().getFoundWarns());
+      Assert.assertTrue(counter.steps > 0);
+    }
+  }
+
+  // A second consumer of the same traversal.
+  private static class ToolCounter implements StepVisitor {
+    private int steps = 0;
+
+    @Override
+    public void enterStep(final WorkflowTraversal.Level level, final int step) {
+      steps++;
+    }
+  }
+
+  private static List<String> lint(final Map<String, Object> workflow, final int threshold) {
+    final LintContext lintContext = new LintContext(true);
+    new NativeLinter(threshold).lint(lintContext, workflow);
+    return lintContext.collectMessages();
+  }
+
+  // Subworkflows nested depth levels deep, each workflow with width subworkflow steps and a tool
+  // step reporting an export error named after its path.
+  private static Map<String, Object> nestedWorkflow(final int depth, final int width) {
+    return nestedWorkflow(depth, width, "");
+  }
+
+  private static Map<String, Object> nestedWorkflow(
+      final int depth, final int width, final String path) {
+    final Map<String, Object> steps = new LinkedHashMap<>();
+    if (depth > 0) {
+      for (int i = 0; i < width; i++) {
+        final Map<String, Object> step = step(i);
+        step.put("type", "subworkflow");
+        step.put("subworkflow", nestedWorkflow(depth - 1, width, path + i));
+        steps.put(Integer.toString(i), step);
+      }
+    }
+    final Map<String, Object> tool = step(steps.size());
+    tool.put("errors", path.isEmpty() ? "top" : path);
+    steps.put(Integer.toString(steps.size()), tool);
+    final Map<String, Object> workflow = new LinkedHashMap<>();
+    workflow.put("a_galaxy_workflow", "true");
+    workflow.put("steps", steps);
+    return workflow;
+  }
+
+  // what the native adapter needs to build a graph, the linter doesn't look at these
+  private static Map<String, Object> step(final int id) {
+    final Map<String, Object> step = new LinkedHashMap<>();
+    step.put("id", id);
+    step.put("annotation", "");
+    step.put("input_connections", new LinkedHashMap<>());
+    return step;
+  }
+}
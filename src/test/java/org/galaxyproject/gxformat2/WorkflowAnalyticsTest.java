@@ -0,0 +1,77 @@
+package org.galaxyproject.gxformat2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.galaxyproject.gxformat2.benchmarks.CytoscapeScalingBenchmark;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkflowAnalyticsTest {
+
+  @Test
+  public void testDiamond() {
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  input1: data\n"
+                + "steps:\n"
+                + "  left: {tool_id: cat1, in: {input1: input1, queries: input1}}\n"
+                + "  right: {tool_id: cat1, in: {input1: input1}}\n"
+                + "  join: {tool_id: cat1, in: {input1: left/out_file1, queries: right/out}}\n"
+                + "  tail: {tool_id: cat1, in: {input1: join/out_file1}}\n");
+    final WorkflowAnalytics analytics = WorkflowAnalytics.of(workflow);
+    Assert.assertEquals(5, analytics.getStepCount());
+    Assert.assertEquals(4, analytics.getCriticalPathLength());
+    Assert.assertEquals(2, analytics.getMaxParallelWidth());
+    Assert.assertEquals(
+        Map.of("input1", 0, "left", 1, "right", 1, "join", 2, "tail", 3), analytics.getDepths());
+    // left reads input1 twice, which counts once
+    Assert.assertEquals(Map.of(0, 1, 1, 3, 2, 1), analytics.getFanInDistribution());
+    Assert.assertEquals(Map.of(0, 1, 1, 3, 2, 1), analytics.getFanOutDistribution());
+    Assert.assertEquals(List.of(0, 1, 2), List.copyOf(analytics.getFanInDistribution().keySet()));
+  }
+
+  @Test
+  public void testLargeSyntheticWorkflow() {
+    final int steps = 10000;
+    final WorkflowAnalytics analytics =
+        WorkflowAnalytics.of(CytoscapeScalingBenchmark.nativeWorkflow(steps));
+    Assert.assertEquals(steps, analytics.getCriticalPathLength());
+    Assert.assertEquals(1, analytics.getMaxParallelWidth());
+    Assert.assertEquals(steps - 1, analytics.fanOut(0));
+    Assert.assertEquals(Map.of(0, 1, 1, 1, 2, steps - 2), analytics.getFanInDistribution());
+  }
+
+  @Test
+  public void testAnalyticsInNodeData() throws Exception {
+    final Map<String, Object> workflow = CytoscapeScalingBenchmark.nativeWorkflow(3);
+    final List<Map<String, Object>> nodes =
+        (List<Map<String, Object>>)
+            Cytoscape.getElements(workflow, null, CytoscapeOptions.DEFAULT.withStepAnalytics(true))
+                .get("nodes");
+    final Map<String, Object> last = (Map<String, Object>) nodes.get(4).get("data");
+    Assert.assertEquals(2, last.get("depth"));
+    Assert.assertEquals(2, last.get("fan_in"));
+    Assert.assertEquals(0, last.get("fan_out"));
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonGenerator generator = Cytoscape.objectMapper.getFactory().createGenerator(out)) {
+      Cytoscape.writeElements(
+          workflow, generator, CytoscapeOptions.DEFAULT.withStepAnalytics(true));
+    }
+    Assert.assertEquals(
+        Cytoscape.objectMapper.writeValueAsString(
+            Cytoscape.getElements(
+                workflow, null, CytoscapeOptions.DEFAULT.withStepAnalytics(true))),
+        out.toString(StandardCharsets.UTF_8));
+    Assert.assertFalse(
+        ((Map<String, Object>)
+                ((List<Map<String, Object>>) Cytoscape.getElements(workflow).get("nodes"))
+                    .get(4)
+                    .get("data"))
+            .containsKey("depth"));
+  }
+}
@@ -0,0 +1,124 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkflowDiffTest {
+  private static final String NATIVE =
+      "src/test/resources/mvdbeek/galaxy-workflow-dockstore-example-2/Dockstore.ga";
+
+  @Test
+  public void testIdenticalVersions() throws Exception {
+    Assert.assertTrue(WorkflowDiff.compare(nativeWorkflow(), nativeWorkflow()).isEmpty());
+  }
+
+  @Test
+  public void testRenumberedAndMovedStepsMatchByUuid() throws Exception {
+    final Map<String, Object> after = nativeWorkflow();
+    final Map<String, Object> steps = (Map<String, Object>) after.get("steps");
+    final Map<String, Object> input = (Map<String, Object>) steps.remove("0");
+    final Map<String, Object> cat = (Map<String, Object>) steps.remove("1");
+    input.put("id", 1);
+    input.put("position", Map.of("top", 50, "left", 50));
+    cat.put("id", 0);
+    cat.put("label", "renamed_cat");
+    ((Map<String, Object>) ((Map<String, Object>) cat.get("input_connections")).get("input1"))
+        .put("id", 1);
+    steps.put("0", cat);
+    steps.put("1", input);
+
+    final WorkflowDiff diff = WorkflowDiff.compare(nativeWorkflow(), after);
+    Assert.assertTrue(diff.getAddedSteps().isEmpty());
+    Assert.assertTrue(diff.getRemovedSteps().isEmpty());
+    Assert.assertTrue(diff.getAddedEdges().isEmpty());
+    Assert.assertTrue(diff.getRemovedEdges().isEmpty());
+    Assert.assertEquals(1, diff.getChangedSteps().size());
+    final WorkflowDiff.ChangedStep changed = diff.getChangedSteps().get(0);
+    Assert.assertEquals("1", changed.getBeforeId());
+    Assert.assertEquals("0", changed.getAfterId());
+    Assert.assertEquals(List.of("label"), changed.getChangedKeys());
+  }
+
+  @Test
+  public void testFormat2AddedRemovedAndRewired() {
+    final Map<String, Object> before =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  input1: data\n"
+                + "steps:\n"
+                + "  first: {tool_id: cat1, in: {input1: input1}}\n"
+                + "  dropped: {tool_id: sort1, in: {input: first/out_file1}}\n");
+    final Map<String, Object> after =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  input1: data\n"
+                + "steps:\n"
+                + "  first: {tool_id: cat1, tool_version: '2.0', in: {input1: input1}}\n"
+                + "  second: {tool_id: wc_gnu, in: {input1: first/out_file1, queries: input1}}\n");
+    final WorkflowDiff diff = WorkflowDiff.compare(before, after);
+    Assert.assertEquals(List.of("second"), diff.getAddedSteps());
+    Assert.assertEquals(List.of("dropped"), diff.getRemovedSteps());
+    Assert.assertEquals(1, diff.getChangedSteps().size());
+    Assert.assertEquals(List.of("tool_version"), diff.getChangedSteps().get(0).getChangedKeys());
+    Assert.assertEquals(2, diff.getAddedEdges().size());
+    final WorkflowDiff.Edge added = diff.getAddedEdges().get(1);
+    Assert.assertEquals(
+        Arrays.asList("input1", "second", "queries", null),
+        Arrays.asList(added.getSource(), added.getTarget(), added.getInput(), added.getOutput()));
+    Assert.assertEquals(1, diff.getRemovedEdges().size());
+    Assert.assertEquals("dropped", diff.getRemovedEdges().get(0).getTarget());
+  }
+
+  @Test
+  public void testStepsMatchedByToolIdWithoutLabels() throws Exception {
+    final Map<String, Object> before = nativeWorkflow();
+    final Map<String, Object> after = nativeWorkflow();
+    for (final Map<String, Object> workflow : List.of(before, after)) {
+      for (final Object step : ((Map<String, Object>) workflow.get("steps")).values()) {
+        ((Map<String, Object>) step).remove("uuid");
+        ((Map<String, Object>) step).remove("label");
+      }
+    }
+    final Map<String, Object> cat =
+        (Map<String, Object>) ((Map<String, Object>) after.get("steps")).get("1");
+    cat.put("tool_version", "1.1");
+    final WorkflowDiff diff = WorkflowDiff.compare(before, after);
+    // the input has no tool ID and nothing else to match it by
+    Assert.assertEquals(List.of("0"), diff.getAddedSteps());
+    Assert.assertEquals(List.of("0"), diff.getRemovedSteps());
+    Assert.assertEquals(List.of("tool_version"), diff.getChangedSteps().get(0).getChangedKeys());
+  }
+
+  @Test
+  public void testNestedKeyOrderIsNotAChange() throws Exception {
+    final Map<String, Object> before = nativeWorkflow();
+    final Map<String, Object> after = nativeWorkflow();
+    final Map<String, Object> beforeState = new LinkedHashMap<>();
+    beforeState.put("a", 1);
+    beforeState.put("b", Map.of("c", 2));
+    final Map<String, Object> afterState = new LinkedHashMap<>();
+    afterState.put("b", Map.of("c", 2));
+    afterState.put("a", 1);
+    ((Map<String, Object>) ((Map<String, Object>) before.get("steps")).get("1"))
+        .put("tool_state", beforeState);
+    ((Map<String, Object>) ((Map<String, Object>) after.get("steps")).get("1"))
+        .put("tool_state", afterState);
+    Assert.assertTrue(WorkflowDiff.compare(before, after).isEmpty());
+    final Map<String, Object> changed = nativeWorkflow();
+    ((Map<String, Object>) ((Map<String, Object>) changed.get("steps")).get("1"))
+        .put("tool_state", Map.of("a", 3, "b", Map.of("c", 2)));
+    Assert.assertEquals(
+        List.of("tool_state"),
+        WorkflowDiff.compare(before, changed).getChangedSteps().get(0).getChangedKeys());
+  }
+
+  private static Map<String, Object> nativeWorkflow() throws Exception {
+    return (Map<String, Object>) IoUtils.readYamlFromPath(NATIVE);
+  }
+}
@@ -0,0 +1,77 @@
+package org.galaxyproject.gxformat2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkflowFormatTest {
+
+  @Test
+  public void testExamples() throws IOException {
+    Assert.assertEquals(
+        WorkflowFormat.Format.NATIVE,
+        detect("src/test/resources/transcriptomics-denovo-workflow.ga").getFormat());
+    Assert.assertEquals(
+        WorkflowFormat.Format.FORMAT2,
+        detect(
+                "src/test/resources/jmchilton/galaxy-workflow-dockstore-example-1/Dockstore.gxwf.yml")
+            .getFormat());
+  }
+
+  @Test
+  public void testMarkerInPrefixSkipsFullParse() {
+    final String yaml = "class: GalaxyWorkflow\nsteps:\n  moo: [unterminated\n";
+    final AtomicInteger parses = new AtomicInteger();
+    final WorkflowFormat.Detection detection =
+        WorkflowFormat.detect(
+            yaml,
+            24,
+            c -> {
+              parses.incrementAndGet();
+              return DocumentParser.loadAs(c, Map.class);
+            });
+    Assert.assertEquals(WorkflowFormat.Format.FORMAT2, detection.getFormat());
+    Assert.assertTrue(detection.getConfidence() < 1.0);
+    Assert.assertEquals(0, parses.get());
+  }
+
+  @Test
+  public void testMarkerIsNotAFullRead() {
+    // short enough to scan whole, but the scan stops at the marker
+    final WorkflowFormat.Detection detection =
+        WorkflowFormat.detect("a_galaxy_workflow: 'true'\nsteps: [unterminated\n");
+    Assert.assertEquals(WorkflowFormat.Format.NATIVE, detection.getFormat());
+    Assert.assertEquals(WorkflowFormat.MARKER_CONFIDENCE, detection.getConfidence(), 0.0);
+    Assert.assertEquals(
+        WorkflowFormat.MARKER_CONFIDENCE,
+        WorkflowFormat.detect("class: GalaxyWorkflow\nsteps: {}\n").getConfidence(),
+        0.0);
+  }
+
+  @Test
+  public void testAmbiguousPrefixFallsBackToFullParse() {
+    final String yaml = "name: moo\nsteps: {}\nclass: GalaxyWorkflow\n";
+    final WorkflowFormat.Detection detection =
+        WorkflowFormat.detect(yaml, 12, c -> DocumentParser.loadAs(c, Map.class));
+    Assert.assertEquals(WorkflowFormat.Format.FORMAT2, detection.getFormat());
+    Assert.assertEquals(1.0, detection.getConfidence(), 0.0);
+  }
+
+  @Test
+  public void testNotAWorkflow() {
+    Assert.assertNull(WorkflowFormat.detect("- moo\n- cow\n").getFormat());
+    Assert.assertNull(WorkflowFormat.detect("moo: [unterminated\n").getFormat());
+    Assert.assertNull(WorkflowFormat.detect("class: [GalaxyWorkflow]\n").getFormat());
+    Assert.assertNull(WorkflowFormat.detect(null).getFormat());
+  }
+
+  private static WorkflowFormat.Detection detect(final String path) throws IOException {
+    return WorkflowFormat.detect(
+        new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,60 @@
+package org.galaxyproject.gxformat2;
+
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkflowGraphTest {
+
+  @Test
+  public void testFormat2Graph() {
+    final Map<String, Object> workflow =
+        DocumentParser.load(
+            "class: GalaxyWorkflow\n"
+                + "inputs:\n"
+                + "  input1: data\n"
+                + "steps:\n"
+                + "  first:\n"
+                + "    tool_id: cat1\n"
+                + "    in: {input1: input1}\n"
+                + "  second:\n"
+                + "    tool_id: cat1\n"
+                + "    in: {input1: first/out_file1, queries: input1, missing: nope}\n");
+    final WorkflowGraph graph = WorkflowAdapter.forWorkflow(workflow).graph();
+    Assert.assertEquals(3, graph.size());
+    final int input = graph.indexOf("input1");
+    final int first = graph.indexOf("first");
+    final int second = graph.indexOf("second");
+    Assert.assertEquals(0, input);
+    Assert.assertEquals("cat1", graph.toolId(first));
+    Assert.assertEquals("data_input", graph.type(input));
+    Assert.assertEquals(-1, graph.indexOf("nope"));
+
+    Assert.assertEquals(4, graph.edgeCount());
+    Assert.assertEquals(3, graph.inputEnd(second) - graph.inputStart(second));
+    final int fromFirst = graph.inputStart(second);
+    Assert.assertEquals(first, graph.edgeSource(fromFirst));
+    Assert.assertEquals(second, graph.edgeTarget(fromFirst));
+    Assert.assertEquals("input1", graph.edgeInputName(fromFirst));
+    Assert.assertEquals("out_file1", graph.edgeOutputName(fromFirst));
+    Assert.assertEquals(-1, graph.edgeSource(graph.inputEnd(second) - 1));
+    Assert.assertEquals("nope", graph.edgeSourceReference(graph.inputEnd(second) - 1));
+
+    Assert.assertEquals(2, graph.outputCount(input));
+    Assert.assertEquals(first, graph.edgeTarget(graph.outputEdge(input, 0)));
+    Assert.assertEquals(second, graph.edgeTarget(graph.outputEdge(input, 1)));
+    Assert.assertEquals(0, graph.outputCount(second));
+  }
+
+  @Test
+  public void testNativeGraph() throws Exception {
+    final Map<String, Object> workflow =
+        (Map<String, Object>) IoUtils.readYamlFromPath("src/test/resources/anotherFile.ga");
+    final WorkflowGraph graph = WorkflowAdapter.forWorkflow(workflow).graph();
+    for (int edge = 0; edge < graph.edgeCount(); edge++) {
+      Assert.assertTrue(graph.edgeSource(edge) >= 0);
+      Assert.assertNotEquals(graph.edgeSource(edge), graph.edgeTarget(edge));
+    }
+    Assert.assertEquals("0", graph.id(0));
+  }
+}
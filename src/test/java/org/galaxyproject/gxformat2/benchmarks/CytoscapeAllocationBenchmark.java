@@ -0,0 +1,65 @@
+package org.galaxyproject.gxformat2.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.galaxyproject.gxformat2.Cytoscape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Garbage produced building the Cytoscape elements of the workflows of {@link
+ * CytoscapeScalingBenchmark}, as maps and streamed to a discarding stream. Run with the GC profiler
+ * (as {@link #main(String[])} does) and compare {@code gc.alloc.rate.norm}, the bytes allocated per
+ * operation, rather than the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CytoscapeAllocationBenchmark {
+  @Param({"10", "1000"})
+  public int steps;
+
+  private Map<String, Object> workflow;
+
+  @Setup
+  public void createWorkflow() {
+    workflow = CytoscapeScalingBenchmark.nativeWorkflow(steps);
+  }
+
+  @Benchmark
+  public Map<String, Object> getElements() {
+    return Cytoscape.getElements(workflow);
+  }
+
+  @Benchmark
+  public void writeElements() throws IOException {
+    Cytoscape.writeElements(workflow, OutputStream.nullOutputStream());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(CytoscapeAllocationBenchmark.class.getSimpleName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,102 @@
+package org.galaxyproject.gxformat2.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.galaxyproject.gxformat2.Cytoscape;
+import org.galaxyproject.gxformat2.WorkflowAnalytics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Builds the Cytoscape elements of generated native workflows of increasing size. Every tool step
+ * reads from the previous step and from the workflow input, so the number of connections grows with
+ * the number of steps; time per step should stay roughly flat across sizes, for the elements as
+ * well as for the analytics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CytoscapeScalingBenchmark {
+  @Param({"10", "100", "1000", "10000"})
+  public int steps;
+
+  private Map<String, Object> workflow;
+
+  @Setup
+  public void createWorkflow() {
+    workflow = nativeWorkflow(steps);
+  }
+
+  @Benchmark
+  public Map<String, Object> getElements() {
+    return Cytoscape.getElements(workflow);
+  }
+
+  @Benchmark
+  public WorkflowAnalytics analytics() {
+    return WorkflowAnalytics.of(workflow);
+  }
+
+  /** A chain of tool steps behind one data input, all of them also connected to the input. */
+  public static Map<String, Object> nativeWorkflow(final int stepCount) {
+    final Map<String, Object> steps = new LinkedHashMap<>();
+    for (int i = 0; i < stepCount; i++) {
+      final Map<String, Object> step = new LinkedHashMap<>();
+      step.put("id", i);
+      step.put("annotation", "");
+      final Map<String, Object> inputConnections = new LinkedHashMap<>();
+      if (i == 0) {
+        step.put("type", "data_input");
+        step.put("label", "input");
+      } else {
+        step.put("type", "tool");
+        step.put("label", "step " + i);
+        step.put("tool_id", "toolshed.g2.bx.psu.edu/repos/devteam/cat1/cat1/1.0.0");
+        inputConnections.put("input1", connection(i - 1));
+        final List<Map<String, Object>> queries = new ArrayList<>();
+        queries.add(connection(0));
+        inputConnections.put("queries", queries);
+      }
+      step.put("input_connections", inputConnections);
+      steps.put(Integer.toString(i), step);
+    }
+    final Map<String, Object> workflow = new LinkedHashMap<>();
+    workflow.put("a_galaxy_workflow", "true");
+    workflow.put("format-version", "0.1");
+    workflow.put("steps", steps);
+    return workflow;
+  }
+
+  private static Map<String, Object> connection(final int sourceStep) {
+    final Map<String, Object> connection = new LinkedHashMap<>();
+    connection.put("id", sourceStep);
+    connection.put("output_name", "out_file1");
+    return connection;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(CytoscapeScalingBenchmark.class.getSimpleName() + "\\.")
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,76 @@
+package org.galaxyproject.gxformat2.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.galaxyproject.gxformat2.DocumentParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * Compares building a new {@link Yaml} per parse (the previous behaviour) with {@link
+ * DocumentParser} on YAML documents. JSON ones go through Jackson since, see {@link
+ * JsonParsingBenchmark}, so the large native workflow is dumped as block YAML first. Run from the
+ * project root after {@code mvn test-compile} with the test classpath, e.g. {@code java -cp ...
+ * org.galaxyproject.gxformat2.benchmarks.YamlParsingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YamlParsingBenchmark {
+  @Param({
+    "src/test/resources/jmchilton/galaxy-workflow-dockstore-example-1/Dockstore.gxwf.yml",
+    "src/test/resources/org/galaxyproject/dockstore_galaxy_interface/language/repos/test.error1/Galaxy-Workflow-Long_read_assembly_with_Hifiasm_and_HiC_data.ga"
+  })
+  public String path;
+
+  private String contents;
+
+  @Setup
+  public void readContents() throws IOException {
+    contents = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    if (path.endsWith(".ga")) {
+      final DumperOptions options = new DumperOptions();
+      options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+      contents = new Yaml(options).dump(new Yaml().load(contents));
+    }
+  }
+
+  @Benchmark
+  public Map newYamlPerParse() {
+    return new Yaml().loadAs(contents, Map.class);
+  }
+
+  @Benchmark
+  public Map documentParser() {
+    return DocumentParser.loadAs(contents, Map.class);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(YamlParsingBenchmark.class.getSimpleName() + "\\.")
+                .build())
+        .run();
+  }
+}
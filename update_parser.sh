@@ -16,6 +16,49 @@ rm "src/test/java/${package}/LintExamplesTest.java"
 rm "src/test/java/${package}/CytoscapeExamplesTest.java"
 
 # Denis: restore modified files that are not present/modified in gxformat2
+#
+# Most of the package below is now a local fork of gxformat2: the parser, adapters, graph,
+# linters, Cytoscape export and their tests were reworked here for performance and are not
+# upstream. Every such file is listed below so a sync keeps the local version. When syncing,
+# diff upstream changes to these files by hand and port them over instead of letting the copy
+# above clobber them, and add any newly forked file to this list.
 git checkout src/main/java/org/galaxyproject/gxformat2/Cytoscape.java
 git restore src/main/java/org/galaxyproject/gxformat2/CytoscapeDAG.java
 git restore src/test/java/org/galaxyproject/gxformat2/CytoscapeTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/WorkflowAdapter.java
+git restore src/main/java/org/galaxyproject/gxformat2/DocumentParser.java
+git restore src/main/java/org/galaxyproject/gxformat2/IoUtils.java
+git restore src/main/java/org/galaxyproject/gxformat2/v19_09/utils/YamlUtils.java
+git restore src/test/java/org/galaxyproject/gxformat2/benchmarks
+git restore src/main/java/org/galaxyproject/gxformat2/JsonDocumentReader.java
+git restore src/test/java/org/galaxyproject/gxformat2/DocumentParserTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/DocumentProjection.java
+git restore src/test/java/org/galaxyproject/gxformat2/DocumentProjectionTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/WorkflowFormat.java
+git restore src/test/java/org/galaxyproject/gxformat2/WorkflowFormatTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/NativeWorkflowAdapter.java
+git restore src/main/java/org/galaxyproject/gxformat2/WorkflowGraph.java
+git restore src/test/java/org/galaxyproject/gxformat2/WorkflowGraphTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/Format2WorkflowAdapter.java
+git restore src/main/java/org/galaxyproject/gxformat2/LayeredLayout.java
+git restore src/test/java/org/galaxyproject/gxformat2/LayeredLayoutTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/ContentHash.java
+git restore src/main/java/org/galaxyproject/gxformat2/WorkflowDiff.java
+git restore src/test/java/org/galaxyproject/gxformat2/WorkflowDiffTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/GraphSummary.java
+git restore src/main/java/org/galaxyproject/gxformat2/CytoscapeOptions.java
+git restore src/main/java/org/galaxyproject/gxformat2/WorkflowAnalytics.java
+git restore src/test/java/org/galaxyproject/gxformat2/WorkflowAnalyticsTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/Lint.java
+git restore src/main/java/org/galaxyproject/gxformat2/LintContext.java
+git restore src/main/java/org/galaxyproject/gxformat2/LintUtils.java
+git restore src/main/java/org/galaxyproject/gxformat2/Format2Linter.java
+git restore src/test/java/org/galaxyproject/gxformat2/LintContextTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/NativeLinter.java
+git restore src/test/java/org/galaxyproject/gxformat2/NativeLinterTest.java
+git restore src/main/java/org/galaxyproject/gxformat2/StepVisitor.java
+git restore src/main/java/org/galaxyproject/gxformat2/WorkflowTraversal.java
+git restore src/main/java/org/galaxyproject/gxformat2/LintVisitor.java
+git restore src/main/java/org/galaxyproject/gxformat2/LintFinding.java
+git restore src/main/java/org/galaxyproject/gxformat2/LintRule.java
+git restore src/main/java/org/galaxyproject/gxformat2/SourcePositions.java